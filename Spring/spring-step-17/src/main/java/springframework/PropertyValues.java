@@ -1,32 +1,50 @@
 package springframework;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class PropertyValues {
-    //这个是存放Bean的属性的List集合
-    private final List<PropertyValue> propertyValueList=new ArrayList<>();
+    private static final PropertyValue[] EMPTY = new PropertyValue[0];
+    //这个是存放Bean的属性的集合，按属性名索引，同名属性后加入的会替换先加入的（保持原来的顺序）
+    //写时复制：属性只在加载配置时写入，创建Bean时只读，读取不需要加锁
+    private volatile Map<String, PropertyValue> propertyValueMap = Collections.emptyMap();
+    //getPropertyValues()返回的数组，随属性集合一起更新，避免每次读取都复制一遍
+    private volatile PropertyValue[] propertyValueArray = EMPTY;
 
-    public void addPropertyValue(PropertyValue pv){
-        propertyValueList.add(pv);
+    public PropertyValues() {
     }
-    //toArray()是Java中的一个方法，它可以将一个列表转换为一个数组。
-    //在这里，我们使用了一个空数组作为参数，以告诉Java我们想要将列表转换为一个新的数组
+
+    //复制一份属性集合，用于在单次实例化中叠加修改而不影响BeanDefinition
+    public PropertyValues(PropertyValues original) {
+        if (original != null) {
+            this.propertyValueMap = original.propertyValueMap;
+            this.propertyValueArray = original.propertyValueArray;
+        }
+    }
+
+    public synchronized void addPropertyValue(PropertyValue pv){
+        Map<String, PropertyValue> copy = new LinkedHashMap<>(this.propertyValueMap);
+        copy.put(pv.getName(), pv);
+        this.propertyValueArray = copy.values().toArray(new PropertyValue[0]);
+        this.propertyValueMap = Collections.unmodifiableMap(copy);
+    }
+
+    //返回的数组是共享的，调用方不要修改
     public PropertyValue[] getPropertyValues(){
-        return this.propertyValueList.toArray(new PropertyValue[0]);
+        return this.propertyValueArray;
     }
     public PropertyValue getPropertyValue(String propertyName){
-        for(PropertyValue pv:this.propertyValueList){
-            if(pv.getName().equals(propertyName)){
-                return pv;
-            }
-        }
-        return null;
+        return this.propertyValueMap.get(propertyName);
+    }
+
+    public boolean isEmpty() {
+        return this.propertyValueArray.length == 0;
     }
 
     @Override
     public String toString() {
         return "PropertyValues{" +
-                "propertyValueList=" + propertyValueList +
+                "propertyValueList=" + propertyValueMap.values() +
                 '}';
     }
 }
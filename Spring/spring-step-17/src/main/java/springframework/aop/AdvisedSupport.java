@@ -1,9 +1,20 @@
 package springframework.aop;
 
 
+import org.aopalliance.aop.Advice;
 import org.aopalliance.intercept.MethodInterceptor;
+import springframework.aop.framework.adapter.MethodBeforeAdviceInterceptor;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class AdvisedSupport {
+    private static final MethodInterceptor[] EMPTY_CHAIN = new MethodInterceptor[0];
     //被代理的目标对象
     private TargetSource targetSource;
     //方法拦截器
@@ -11,19 +22,46 @@ public class AdvisedSupport {
     //方法匹配器（检查目标方法是否符合通知条件）
     private MethodMatcher methodMatcher;
 
+    //按顺序执行的Advisor，多个切面合并到同一个代理上；Advice在添加时就适配成拦截器，组装拦截器链时直接复用
+    private final List<AdvisorInterceptor> advisors = new CopyOnWriteArrayList<>();
+
     private boolean proxyTargetClass = false;
+    //方法到拦截器链的缓存，每个方法只匹配一次，空数组表示直接调用目标方法
+    private final Map<Method, MethodInterceptor[]> methodCache = new ConcurrentHashMap<>();
+    //创建代理后冻结：CGLIB代理在生成类时已经按当时的配置把不需要增强的方法直接转发给目标对象，之后的修改对这些方法不会生效
+    private volatile boolean frozen;
 
     public void setProxyTargetClass(boolean proxyTargetClass) {
+        checkNotFrozen();
         this.proxyTargetClass = proxyTargetClass;
     }
 
+    /**
+     * 冻结配置，之后修改配置的方法都会抛出IllegalStateException
+     */
+    public void freeze() {
+        this.frozen = true;
+    }
+
+    public boolean isFrozen() {
+        return this.frozen;
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("Cannot change the configuration of a proxy that has already been created");
+        }
+    }
+
 
     public TargetSource getTargetSource() {
         return targetSource;
     }
 
     public void setTargetSource(TargetSource targetSource) {
+        checkNotFrozen();
         this.targetSource = targetSource;
+        this.methodCache.clear();
     }
 
     public MethodInterceptor getMethodInterceptor() {
@@ -31,7 +69,9 @@ public class AdvisedSupport {
     }
 
     public void setMethodInterceptor(MethodInterceptor methodInterceptor) {
+        checkNotFrozen();
         this.methodInterceptor = methodInterceptor;
+        this.methodCache.clear();
     }
 
     public MethodMatcher getMethodMatcher() {
@@ -39,10 +79,76 @@ public class AdvisedSupport {
     }
 
     public void setMethodMatcher(MethodMatcher methodMatcher) {
+        checkNotFrozen();
         this.methodMatcher = methodMatcher;
+        this.methodCache.clear();
+    }
+
+    public void addAdvisor(Advisor advisor) {
+        checkNotFrozen();
+        this.advisors.add(new AdvisorInterceptor(advisor, getInterceptor(advisor.getAdvice())));
+        this.methodCache.clear();
+    }
+
+    public List<Advisor> getAdvisors() {
+        List<Advisor> result = new ArrayList<>(advisors.size());
+        for (AdvisorInterceptor entry : advisors) {
+            result.add(entry.advisor);
+        }
+        return Collections.unmodifiableList(result);
     }
 
     public boolean isProxyTargetClass() {
         return this.proxyTargetClass;
     }
+
+    /**
+     * 返回方法的拦截器链，第一次调用时匹配并缓存，之后只是一次Map查找
+     */
+    public MethodInterceptor[] getInterceptors(Method method, Class<?> targetClass) {
+        MethodInterceptor[] chain = methodCache.get(method);
+        if (chain == null) {
+            chain = buildInterceptorChain(method, targetClass);
+            methodCache.put(method, chain);
+        }
+        return chain;
+    }
+
+    //单独设置的拦截器在前，之后按顺序加入匹配的Advisor的拦截器
+    private MethodInterceptor[] buildInterceptorChain(Method method, Class<?> targetClass) {
+        List<MethodInterceptor> chain = new ArrayList<>();
+        if (methodInterceptor != null && (methodMatcher == null || methodMatcher.matches(method, targetClass))) {
+            chain.add(methodInterceptor);
+        }
+        for (AdvisorInterceptor entry : advisors) {
+            if (entry.advisor instanceof PointcutAdvisor) {
+                Pointcut pointcut = ((PointcutAdvisor) entry.advisor).getPointcut();
+                if (!pointcut.getClassFilter().matches(targetClass) || !pointcut.getMathodMatcher().matches(method, targetClass)) {
+                    continue;
+                }
+            }
+            chain.add(entry.interceptor);
+        }
+        return chain.isEmpty() ? EMPTY_CHAIN : chain.toArray(EMPTY_CHAIN);
+    }
+
+    private static MethodInterceptor getInterceptor(Advice advice) {
+        if (advice instanceof MethodInterceptor) {
+            return (MethodInterceptor) advice;
+        }
+        if (advice instanceof MethodBeforeAdvice) {
+            return new MethodBeforeAdviceInterceptor((MethodBeforeAdvice) advice);
+        }
+        throw new IllegalArgumentException("Advice type [" + advice.getClass().getName() + "] is not supported");
+    }
+
+    private static final class AdvisorInterceptor {
+        final Advisor advisor;
+        final MethodInterceptor interceptor;
+
+        AdvisorInterceptor(Advisor advisor, MethodInterceptor interceptor) {
+            this.advisor = advisor;
+            this.interceptor = interceptor;
+        }
+    }
 }
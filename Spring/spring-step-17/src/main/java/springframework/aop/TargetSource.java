@@ -2,6 +2,10 @@ package springframework.aop;
 
 import springframework.beans.utils.ClassUtils;
 
+/**
+ * 代理调用的目标对象来源。默认包装一个固定的目标对象；
+ * 子类可以在每次调用时提供不同的目标对象（比如从对象池中借出），调用结束后代理会通过releaseTarget归还
+ */
 public class TargetSource {
 
     private final Object target;
@@ -10,14 +14,32 @@ public class TargetSource {
         this.target=target;
     }
 
+    //供子类使用，目标对象由子类在每次调用时提供
+    protected TargetSource() {
+        this.target=null;
+    }
+
     public Class<?>[] getTargetClass(){
-        Class<?> clazz= this.target.getClass();
+        Class<?> clazz= getTargetType();
         clazz= ClassUtils.isCglibProxyClass(clazz)? clazz.getSuperclass() : clazz;
         return clazz.getInterfaces();
     }
 
+    //目标对象的类型，代理根据它生成代理类和匹配拦截器，不需要取出目标对象
+    public Class<?> getTargetType(){
+        return this.target.getClass();
+    }
+
+    //每次调用getTarget是否都返回同一个对象，是时代理不会调用releaseTarget
+    public boolean isStatic(){
+        return true;
+    }
 
     public Object getTarget(){
         return target;
     }
+
+    //调用结束后归还getTarget返回的对象
+    public void releaseTarget(Object target) throws Exception{
+    }
 }
@@ -7,27 +7,60 @@ import springframework.aop.MethodMatcher;
 import springframework.aop.Pointcut;
 import java.lang.reflect.Method;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class AspectJExpressionPointcut implements Pointcut, ClassFilter, MethodMatcher {
     private static final Set<PointcutPrimitive> SUPPORTED_PRIMITIVES=new HashSet<PointcutPrimitive>();
     static{
         SUPPORTED_PRIMITIVES.add(PointcutPrimitive.EXECUTION);
     }
+    //所有切点共用一个解析器，使用本类的类加载器解析类型，不持有业务类加载器的引用
+    //解析器内部的类型World不是线程安全的，解析和匹配都在它上面串行
+    private static final PointcutParser PARSER=PointcutParser.getPointcutParserSupportingSpecifiedPrimitivesAndUsingSpecifiedClassLoaderForResolution(
+            SUPPORTED_PRIMITIVES,AspectJExpressionPointcut.class.getClassLoader());
+    //已经解析过的表达式，相同的表达式只解析一次
+    private static final Map<String, PointcutExpression> EXPRESSIONS=new ConcurrentHashMap<>();
+
     private final PointcutExpression pointcutExpression;
+    //方法的匹配结果（ShadowMatch），每个方法只交给AspectJ匹配一次
+    private final Map<Method, Boolean> shadowMatchCache=new ConcurrentHashMap<>();
+    private final Map<Class<?>, Boolean> classMatchCache=new ConcurrentHashMap<>();
+
     public AspectJExpressionPointcut(String expression){
-        PointcutParser pointcutParser=PointcutParser.getPointcutParserSupportingSpecifiedPrimitivesAndUsingSpecifiedClassLoaderForResolution(SUPPORTED_PRIMITIVES
-        ,this.getClass().getClassLoader());
-        pointcutExpression=pointcutParser.parsePointcutExpression(expression);
+        pointcutExpression=EXPRESSIONS.computeIfAbsent(expression,AspectJExpressionPointcut::parse);
     }
+
+    private static PointcutExpression parse(String expression){
+        synchronized (PARSER){
+            return PARSER.parsePointcutExpression(expression);
+        }
+    }
+
     @Override
     public boolean matches(Class<?> clazz) {
-        return pointcutExpression.couldMatchJoinPointsInType(clazz);
+        Boolean matched=classMatchCache.get(clazz);
+        if(matched==null){
+            //匹配时同样会读写解析器的World，结果缓存后不再加锁
+            synchronized (PARSER){
+                matched=pointcutExpression.couldMatchJoinPointsInType(clazz);
+            }
+            classMatchCache.put(clazz,matched);
+        }
+        return matched;
     }
 
     @Override
     public boolean matches(Method method, Class<?> targetClass) {
-        return pointcutExpression.matchesMethodExecution(method).alwaysMatches();
+        Boolean matched=shadowMatchCache.get(method);
+        if(matched==null){
+            synchronized (PARSER){
+                matched=pointcutExpression.matchesMethodExecution(method).alwaysMatches();
+            }
+            shadowMatchCache.put(method,matched);
+        }
+        return matched;
     }
 
     @Override
@@ -1,16 +1,19 @@
 package springframework.aop.aspectj;
 
 import org.aopalliance.aop.Advice;
+import org.springframework.core.Ordered;
 import springframework.aop.Pointcut;
 import springframework.aop.PointcutAdvisor;
 
-public class AspectJExpressionPointcutAdvisor implements PointcutAdvisor {
+public class AspectJExpressionPointcutAdvisor implements PointcutAdvisor, Ordered {
     //切面
     private AspectJExpressionPointcut pointcut;
     //具体的拦截方法
     private Advice advice;
     //表达式
     private String expression;
+    //同一个Bean上有多个Advisor时，order小的拦截器先执行
+    private int order = Ordered.LOWEST_PRECEDENCE;
 
     public void setExpression(String expression){
         this.expression=expression;
@@ -30,4 +33,13 @@ public class AspectJExpressionPointcutAdvisor implements PointcutAdvisor {
     public void setAdvice(Advice advice){
         this.advice=advice;
     }
+
+    public void setOrder(int order) {
+        this.order = order;
+    }
+
+    @Override
+    public int getOrder() {
+        return order;
+    }
 }
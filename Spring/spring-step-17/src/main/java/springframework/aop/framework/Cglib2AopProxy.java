@@ -1,13 +1,23 @@
 package springframework.aop.framework;
 
-import net.sf.cglib.proxy.Enhancer;
+import net.sf.cglib.proxy.Callback;
+import net.sf.cglib.proxy.CallbackFilter;
+import net.sf.cglib.proxy.Dispatcher;
 import net.sf.cglib.proxy.MethodInterceptor;
 import net.sf.cglib.proxy.MethodProxy;
 import springframework.aop.AdvisedSupport;
+import springframework.aop.TargetSource;
 
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashSet;
+import java.util.Set;
 
 public class Cglib2AopProxy implements AopProxy{
+    //回调数组中的下标，由ProxyCallbackFilter为每个方法选择
+    private static final int AOP_PROXY = 0;
+    private static final int INVOKE_TARGET = 1;
+
     private  final AdvisedSupport advised;
 
     public Cglib2AopProxy(AdvisedSupport advised){
@@ -15,12 +25,10 @@ public class Cglib2AopProxy implements AopProxy{
     }
     @Override
     public Object getProxy() {
-        Enhancer enhancer=new Enhancer();
-        enhancer.setSuperclass(advised.getTargetSource().getTarget().getClass());
-        System.out.println(advised.getTargetSource().getTarget().getClass());
-        enhancer.setInterfaces(advised.getTargetSource().getTarget().getClass().getInterfaces());
-        enhancer.setCallback(new DynamicAdvisedInterceptor(advised));
-        return enhancer.create();
+        Class<?> targetClass=advised.getTargetSource().getTargetType();
+        Callback[] callbacks={new DynamicAdvisedInterceptor(advised), new TargetDispatcher(advised)};
+        //相同结构的代理共用一个生成的类，只有第一次需要生成字节码
+        return ProxyClassCache.newCglibProxy(targetClass,targetClass.getInterfaces(),callbacks,new ProxyCallbackFilter(advised,targetClass));
     }
     private static class DynamicAdvisedInterceptor implements MethodInterceptor{
         private final AdvisedSupport advisedSupport;
@@ -30,22 +38,101 @@ public class Cglib2AopProxy implements AopProxy{
 
         @Override
         public Object intercept(Object o, Method method, Object[] objects, MethodProxy methodProxy) throws Throwable {
-            CglibMethodInvocation methodInvocation=new CglibMethodInvocation(advisedSupport.getTargetSource().getTarget(),method,objects,methodProxy);
-            if(advisedSupport.getMethodMatcher().matches(method,advisedSupport.getTargetSource().getTarget().getClass())){
-                return advisedSupport.getMethodInterceptor().invoke(methodInvocation);
+            TargetSource targetSource=advisedSupport.getTargetSource();
+            org.aopalliance.intercept.MethodInterceptor[] chain=advisedSupport.getInterceptors(method,targetSource.getTargetType());
+            Object target=targetSource.getTarget();
+            try {
+                //没有匹配的拦截器时直接通过FastClass调用目标方法
+                if(chain.length==0){
+                    return methodProxy.invoke(target,objects);
+                }
+                return new CglibMethodInvocation(target,method,objects,methodProxy,chain).proceed();
+            } finally {
+                //每次调用取出的目标对象（比如对象池中的对象）用完后归还
+                if(!targetSource.isStatic()){
+                    targetSource.releaseTarget(target);
+                }
             }
-            return methodInvocation.proceed();
         }
     }
+
+    //不需要增强的方法直接转发给目标对象，不经过拦截器
+    private static class TargetDispatcher implements Dispatcher{
+        private final AdvisedSupport advisedSupport;
+        public TargetDispatcher(AdvisedSupport advised) {
+            this.advisedSupport=advised;
+        }
+
+        @Override
+        public Object loadObject() {
+            return advisedSupport.getTargetSource().getTarget();
+        }
+    }
+
+    /**
+     * 生成代理类时为每个方法选择回调：有拦截器的方法走DynamicAdvisedInterceptor，其他方法走TargetDispatcher。
+     * 目标对象不是固定的（需要releaseTarget）时所有方法都走DynamicAdvisedInterceptor。
+     * CGLIB按CallbackFilter的equals缓存生成的类，所以按被增强的方法集合判断相等，增强方法相同的代理可以共用一个类。
+     * 过滤器作为代理类缓存的key长期存在，只保存方法集合，不引用AdvisedSupport
+     */
+    private static class ProxyCallbackFilter implements CallbackFilter{
+        private final boolean staticTarget;
+        private final Set<Method> advisedMethods=new HashSet<>();
+
+        ProxyCallbackFilter(AdvisedSupport advised, Class<?> targetClass) {
+            this.staticTarget=advised.getTargetSource().isStatic();
+            for (Class<?> clazz = targetClass; clazz != null; clazz = clazz.getSuperclass()) {
+                for (Method method : clazz.getDeclaredMethods()) {
+                    int modifiers=method.getModifiers();
+                    if(!Modifier.isStatic(modifiers)&&!Modifier.isPrivate(modifiers)&&!Modifier.isFinal(modifiers)&&isAdvised(advised,method,targetClass)){
+                        advisedMethods.add(method);
+                    }
+                }
+            }
+            for (Class<?> ifc : targetClass.getInterfaces()) {
+                for (Method method : ifc.getMethods()) {
+                    if(isAdvised(advised,method,targetClass)){
+                        advisedMethods.add(method);
+                    }
+                }
+            }
+        }
+
+        private static boolean isAdvised(AdvisedSupport advised, Method method, Class<?> targetClass) {
+            return advised.getInterceptors(method,targetClass).length>0;
+        }
+
+        @Override
+        public int accept(Method method) {
+            return !staticTarget||advisedMethods.contains(method)?AOP_PROXY:INVOKE_TARGET;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if(this==other) return true;
+            if(!(other instanceof ProxyCallbackFilter)) return false;
+            ProxyCallbackFilter that=(ProxyCallbackFilter) other;
+            return staticTarget==that.staticTarget&&advisedMethods.equals(that.advisedMethods);
+        }
+
+        @Override
+        public int hashCode() {
+            return advisedMethods.hashCode()*31+(staticTarget?1:0);
+        }
+    }
+
     private  static class CglibMethodInvocation extends ReflectiveMethodInvocation{
+        private final MethodProxy methodProxy;
 
-        public CglibMethodInvocation(Object target, Method method, Object[] args, MethodProxy methodProxy) {
-            super(target, method, args);
+        public CglibMethodInvocation(Object target, Method method, Object[] args, MethodProxy methodProxy, org.aopalliance.intercept.MethodInterceptor[] interceptors) {
+            super(target, method, args, interceptors);
+            this.methodProxy=methodProxy;
         }
 
+        //通过FastClass按下标调用目标方法，不使用反射
         @Override
-        public Object proceed() throws Throwable {
-            return this.getMethod().invoke(this.getTarget(),this.getArguments());
+        protected Object invokeJoinpoint() throws Throwable {
+            return methodProxy.invoke(getTarget(),getArguments());
         }
     }
 }
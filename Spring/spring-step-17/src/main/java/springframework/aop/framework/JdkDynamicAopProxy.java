@@ -2,9 +2,9 @@ package springframework.aop.framework;
 
 import org.aopalliance.intercept.MethodInterceptor;
 import springframework.aop.AdvisedSupport;
+import springframework.aop.TargetSource;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
 
 public class JdkDynamicAopProxy implements AopProxy, InvocationHandler {
     private final AdvisedSupport advised;
@@ -16,15 +16,26 @@ public class JdkDynamicAopProxy implements AopProxy, InvocationHandler {
 
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-        if(advised.getMethodMatcher().matches(method,advised.getTargetSource().getTarget().getClass())){
-            MethodInterceptor methodInterceptor=advised.getMethodInterceptor();
-            return methodInterceptor.invoke(new ReflectiveMethodInvocation(advised.getTargetSource().getTarget(),method,args));
+        TargetSource targetSource=advised.getTargetSource();
+        MethodInterceptor[] chain=advised.getInterceptors(method,targetSource.getTargetType());
+        Object target=targetSource.getTarget();
+        try {
+            //没有匹配的拦截器时直接调用目标方法
+            if(chain.length==0){
+                return ReflectiveMethodInvocation.invokeJoinpointUsingReflection(target,method,args);
+            }
+            return new ReflectiveMethodInvocation(target,method,args,chain).proceed();
+        } finally {
+            //每次调用取出的目标对象（比如对象池中的对象）用完后归还
+            if(!targetSource.isStatic()){
+                targetSource.releaseTarget(target);
+            }
         }
-        return method.invoke(advised.getTargetSource().getTarget(),args);
     }
 
     @Override
     public Object getProxy() {
-        return Proxy.newProxyInstance(Thread.currentThread().getContextClassLoader(), advised.getTargetSource().getTarget().getClass().getInterfaces(),this);
+        Class<?> targetType=advised.getTargetSource().getTargetType();
+        return ProxyClassCache.newJdkProxy(targetType,targetType.getInterfaces(),this);
     }
 }
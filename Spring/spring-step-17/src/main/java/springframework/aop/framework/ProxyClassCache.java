@@ -0,0 +1,144 @@
+package springframework.aop.framework;
+
+import net.sf.cglib.core.ReflectUtils;
+import net.sf.cglib.proxy.Callback;
+import net.sf.cglib.proxy.CallbackFilter;
+import net.sf.cglib.proxy.Enhancer;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 所有容器共用的代理类缓存，同一种代理只生成一次字节码，之后的代理对象（比如每次getBean得到的原型Bean）直接用缓存的构造器创建。
+ * 缓存挂在目标类上（ClassValue），代理类和目标类在同一个类加载器中，目标类被卸载时缓存一起回收，不会持有类加载器。
+ * 缓存的只是代理类的构造器，不持有任何代理对象、回调或目标对象：
+ * CGLIB代理创建实例前通过Enhancer#registerCallbacks把回调交给新实例；JDK代理把InvocationHandler传给构造器
+ */
+public final class ProxyClassCache {
+    //目标类 -> (代理结构 -> 代理类的构造器)
+    private static final ClassValue<Map<ProxyClassKey, Constructor<?>>> CONSTRUCTORS = new ClassValue<Map<ProxyClassKey, Constructor<?>>>() {
+        @Override
+        protected Map<ProxyClassKey, Constructor<?>> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+
+    private ProxyClassCache() {
+    }
+
+    /**
+     * 用缓存的CGLIB代理类创建代理对象，缓存中没有时生成代理类
+     */
+    public static Object newCglibProxy(Class<?> superclass, Class<?>[] interfaces, Callback[] callbacks, CallbackFilter callbackFilter) {
+        Class<?>[] callbackTypes = new Class<?>[callbacks.length];
+        for (int i = 0; i < callbacks.length; i++) {
+            callbackTypes[i] = callbacks[i].getClass();
+        }
+        Map<ProxyClassKey, Constructor<?>> constructors = CONSTRUCTORS.get(superclass);
+        ProxyClassKey key = new ProxyClassKey(superclass, interfaces, callbackTypes, callbackFilter);
+        Constructor<?> constructor = constructors.get(key);
+        if (constructor != null) {
+            HITS.increment();
+        } else {
+            MISSES.increment();
+            Enhancer enhancer = new Enhancer();
+            enhancer.setSuperclass(superclass);
+            enhancer.setInterfaces(interfaces);
+            enhancer.setCallbackTypes(callbackTypes);
+            enhancer.setCallbackFilter(callbackFilter);
+            try {
+                Class<?> proxyClass = enhancer.createClass();
+                constructor = proxyClass.getDeclaredConstructor();
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException("No default constructor on CGLIB proxy class for " + superclass.getName(), e);
+            }
+            constructors.putIfAbsent(key, constructor);
+        }
+        //回调只对当前线程接下来创建的这个实例生效
+        Enhancer.registerCallbacks(constructor.getDeclaringClass(), callbacks);
+        try {
+            return ReflectUtils.newInstance(constructor, null);
+        } finally {
+            Enhancer.registerCallbacks(constructor.getDeclaringClass(), null);
+        }
+    }
+
+    /**
+     * 用缓存的JDK代理类构造器创建代理对象，代理类定义在目标类的类加载器中
+     */
+    public static Object newJdkProxy(Class<?> targetClass, Class<?>[] interfaces, InvocationHandler handler) {
+        Map<ProxyClassKey, Constructor<?>> constructors = CONSTRUCTORS.get(targetClass);
+        ProxyClassKey key = new ProxyClassKey(Proxy.class, interfaces, new Class<?>[]{InvocationHandler.class}, null);
+        Constructor<?> constructor = constructors.get(key);
+        if (constructor == null) {
+            MISSES.increment();
+            //第一个代理对象直接创建，之后用它的类的构造器
+            Object proxy = Proxy.newProxyInstance(targetClass.getClassLoader(), interfaces, handler);
+            try {
+                constructors.putIfAbsent(key, proxy.getClass().getConstructor(InvocationHandler.class));
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException("No InvocationHandler constructor on JDK proxy class", e);
+            }
+            return proxy;
+        }
+        HITS.increment();
+        try {
+            return constructor.newInstance(handler);
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Could not instantiate JDK proxy for " + Arrays.toString(interfaces), e);
+        }
+    }
+
+    public static long getHits() {
+        return HITS.sum();
+    }
+
+    public static long getMisses() {
+        return MISSES.sum();
+    }
+
+    private static final class ProxyClassKey {
+        private final Class<?> superclass;
+        private final Class<?>[] interfaces;
+        private final Class<?>[] callbackTypes;
+        //CGLIB的CallbackFilter决定了每个方法用哪个回调，也是生成的类的一部分
+        private final CallbackFilter callbackFilter;
+        private final int hashCode;
+
+        ProxyClassKey(Class<?> superclass, Class<?>[] interfaces, Class<?>[] callbackTypes, CallbackFilter callbackFilter) {
+            this.superclass = superclass;
+            this.interfaces = interfaces.clone();
+            this.callbackTypes = callbackTypes;
+            this.callbackFilter = callbackFilter;
+            this.hashCode = Objects.hash(superclass, Arrays.hashCode(interfaces), Arrays.hashCode(callbackTypes), callbackFilter);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof ProxyClassKey)) {
+                return false;
+            }
+            ProxyClassKey that = (ProxyClassKey) other;
+            return superclass == that.superclass
+                    && Arrays.equals(interfaces, that.interfaces) && Arrays.equals(callbackTypes, that.callbackTypes)
+                    && Objects.equals(callbackFilter, that.callbackFilter);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
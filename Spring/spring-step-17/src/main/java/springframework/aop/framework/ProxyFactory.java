@@ -9,7 +9,9 @@ public class ProxyFactory {
         this.advisedSupport=advisedSupport;
     }
 
+    //创建代理后配置不能再修改
     public Object getProxy(){
+        advisedSupport.freeze();
         return createAopProxy().getProxy();
     }
 
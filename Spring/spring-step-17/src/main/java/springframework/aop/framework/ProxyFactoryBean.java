@@ -0,0 +1,62 @@
+package springframework.aop.framework;
+
+import springframework.aop.AdvisedSupport;
+import springframework.aop.TargetSource;
+import springframework.beans.factory.FactoryBean;
+
+/**
+ * 为指定的TargetSource创建代理的FactoryBean，比如让一个代理Bean背后是一池原型对象：
+ * <pre>
+ * &lt;bean id="parserTarget" class="..." scope="prototype"/&gt;
+ * &lt;bean id="parserPool" class="springframework.aop.target.PoolingTargetSource"&gt;
+ *     &lt;property name="targetBeanName" value="parserTarget"/&gt;
+ * &lt;/bean&gt;
+ * &lt;bean id="parser" class="springframework.aop.framework.ProxyFactoryBean"&gt;
+ *     &lt;property name="targetSource" ref="parserPool"/&gt;
+ * &lt;/bean&gt;
+ * </pre>
+ */
+public class ProxyFactoryBean implements FactoryBean<Object> {
+    private TargetSource targetSource;
+    private boolean proxyTargetClass = false;
+    private volatile Object proxy;
+
+    public void setTargetSource(TargetSource targetSource) {
+        this.targetSource = targetSource;
+    }
+
+    public void setProxyTargetClass(boolean proxyTargetClass) {
+        this.proxyTargetClass = proxyTargetClass;
+    }
+
+    @Override
+    public Object getObject() throws Exception {
+        Object proxy = this.proxy;
+        if (proxy == null) {
+            synchronized (this) {
+                proxy = this.proxy;
+                if (proxy == null) {
+                    if (targetSource == null) {
+                        throw new IllegalStateException("Property 'targetSource' is required");
+                    }
+                    AdvisedSupport advisedSupport = new AdvisedSupport();
+                    advisedSupport.setTargetSource(targetSource);
+                    advisedSupport.setProxyTargetClass(proxyTargetClass);
+                    proxy = new ProxyFactory(advisedSupport).getProxy();
+                    this.proxy = proxy;
+                }
+            }
+        }
+        return proxy;
+    }
+
+    @Override
+    public Class<?> getObjectType() {
+        return targetSource != null ? targetSource.getTargetType() : null;
+    }
+
+    @Override
+    public boolean isSingleton() {
+        return true;
+    }
+}
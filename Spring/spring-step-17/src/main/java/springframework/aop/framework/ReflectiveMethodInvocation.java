@@ -1,9 +1,11 @@
 package springframework.aop.framework;
 
+import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
 import org.springframework.aop.ProxyMethodInvocation;
 
 import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 //ReflectiveMethodInvocation是Spring框架中的一个类，用于执行方法调用的封装和处理。它是MethodInvocation接口的默认实现类之一。
 // ReflectiveMethodInvocation主要用于在AOP中实现方法的拦截和增强。当使用Spring的AOP功能时，当目标方法被调用时，Spring会创建
@@ -19,10 +21,19 @@ public class ReflectiveMethodInvocation implements ProxyMethodInvocation {
     private Object target;
     private Method method;
     private Object[] arguments;
+    private static final MethodInterceptor[] NO_INTERCEPTORS = new MethodInterceptor[0];
+    //按顺序执行的拦截器链，由代理预先计算好
+    private final MethodInterceptor[] interceptors;
+    //当前执行到的拦截器下标
+    private int currentInterceptorIndex = -1;
     public ReflectiveMethodInvocation(Object target, Method method, Object[] args) {
+        this(target, method, args, NO_INTERCEPTORS);
+    }
+    public ReflectiveMethodInvocation(Object target, Method method, Object[] args, MethodInterceptor[] interceptors) {
         this.target=target;
         this.method=method;
         this.arguments=args;
+        this.interceptors=interceptors;
     }
 
     public Object getTarget() {
@@ -76,12 +87,29 @@ public class ReflectiveMethodInvocation implements ProxyMethodInvocation {
 
     @Override
     public Object proceed() throws Throwable {
-        return method.invoke(target,arguments);
+        //拦截器都执行完后调用目标方法
+        if (++currentInterceptorIndex == interceptors.length) {
+            return invokeJoinpoint();
+        }
+        return interceptors[currentInterceptorIndex].invoke(this);
+    }
+
+    protected Object invokeJoinpoint() throws Throwable {
+        return invokeJoinpointUsingReflection(target, method, arguments);
+    }
+
+    //通过反射调用目标方法，抛出目标方法自己的异常
+    public static Object invokeJoinpointUsingReflection(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
     }
 
     @Override
     public Object getThis() {
-        return null;
+        return target;
     }
 
     @Override
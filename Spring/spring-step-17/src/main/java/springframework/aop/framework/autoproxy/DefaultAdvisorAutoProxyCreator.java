@@ -1,20 +1,32 @@
 package springframework.aop.framework.autoproxy;
 
+import cn.hutool.core.bean.BeanException;
 import org.aopalliance.aop.Advice;
-import org.aopalliance.intercept.MethodInterceptor;
 import springframework.BeansException;
 import springframework.aop.*;
 import springframework.aop.aspectj.AspectJExpressionPointcutAdvisor;
 import springframework.aop.framework.ProxyFactory;
+import springframework.aop.framework.ProxyFactoryBean;
 import springframework.beans.factory.BeanFactory;
 import springframework.beans.factory.BeanFactoryAware;
 import springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
 import springframework.beans.factory.support.DefaultListableBeanFactory;
 
-import java.util.Collection;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class DefaultAdvisorAutoProxyCreator implements InstantiationAwareBeanPostProcessor, BeanFactoryAware {
+    private static final AspectJExpressionPointcutAdvisor[] NO_ADVISORS = new AspectJExpressionPointcutAdvisor[0];
     private DefaultListableBeanFactory beanFactory;
+    //缓存的候选Advisor，Advisor的Bean名称变化（注册了新的BeanDefinition）时整体替换，连同每个类适用的Advisor一起失效
+    private volatile AdvisorCandidates advisorCandidates;
+    //循环依赖中已经提前创建代理的Bean（Bean名称 -> 原始对象），初始化完成后不再重复代理
+    private final Map<String, Object> earlyProxyReferences = new ConcurrentHashMap<>();
 
     @Override
     public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
@@ -23,34 +35,117 @@ public class DefaultAdvisorAutoProxyCreator implements InstantiationAwareBeanPos
 
     @Override
     public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        if(earlyProxyReferences.remove(beanName)==bean) return bean;
+        return wrapIfNecessary(bean, beanName);
+    }
+
+    //循环依赖时其他Bean拿到的是提前暴露的引用，需要在这里就创建代理，否则它们持有的是未增强的原始对象
+    @Override
+    public Object getEarlyBeanReference(Object bean, String beanName) {
+        earlyProxyReferences.put(beanName, bean);
+        try {
+            return wrapIfNecessary(bean, beanName);
+        } catch (BeansException e) {
+            throw new BeanException("Could not create early proxy for bean '" + beanName + "'", e);
+        }
+    }
+
+    private Object wrapIfNecessary(Object bean, String beanName) throws BeansException {
         if(isInfrastructureClass(bean.getClass())) return bean;
-        Collection<AspectJExpressionPointcutAdvisor> advisors=beanFactory.getBeansOfType(AspectJExpressionPointcutAdvisor.class).values();
+        AspectJExpressionPointcutAdvisor[] advisors=getEligibleAdvisors(bean.getClass());
+        //没有任何方法需要增强时不创建代理
+        if(advisors.length==0) return bean;
+        AdvisedSupport advisedSupport=new AdvisedSupport();
+
+        TargetSource targetSource=new TargetSource(bean);
+        advisedSupport.setTargetSource(targetSource);
+        //所有适用的Advisor合并到一个代理上，按order排好的顺序组成每个方法的拦截器链
         for(AspectJExpressionPointcutAdvisor advisor: advisors){
-            ClassFilter classFilter=advisor.getPointcut().getClassFilter();
-            //过滤匹配类
-            if(!classFilter.matches(bean.getClass())) continue;
-            AdvisedSupport advisedSupport=new AdvisedSupport();
+            advisedSupport.addAdvisor(advisor);
+        }
+        advisedSupport.setProxyTargetClass(false);
 
-            TargetSource targetSource=new TargetSource(bean);
-            advisedSupport.setTargetSource(targetSource);
-            advisedSupport.setMethodInterceptor((MethodInterceptor) advisor.getAdvice());
-            advisedSupport.setMethodMatcher(advisor.getPointcut().getMathodMatcher());
-            advisedSupport.setProxyTargetClass(false);
+        return new ProxyFactory(advisedSupport).getProxy();
+    }
 
-            return new ProxyFactory(advisedSupport).getProxy();
+    private AspectJExpressionPointcutAdvisor[] getEligibleAdvisors(Class<?> beanClass) throws BeansException {
+        AdvisorCandidates candidates=getCandidateAdvisors();
+        //匹配结果放在它所依据的候选快照里，旧快照上算出的结果不会混进新快照
+        AspectJExpressionPointcutAdvisor[] eligible=candidates.eligibleAdvisors.get(beanClass);
+        if(eligible==null){
+            eligible=findEligibleAdvisors(candidates.advisors,beanClass);
+            candidates.eligibleAdvisors.put(beanClass,eligible);
+        }
+        return eligible;
+    }
 
+    private AdvisorCandidates getCandidateAdvisors() throws BeansException {
+        String[] advisorNames=beanFactory.getBeanNamesForType(AspectJExpressionPointcutAdvisor.class);
+        AdvisorCandidates candidates=this.advisorCandidates;
+        if(candidates!=null&&Arrays.equals(candidates.advisorNames,advisorNames)){
+            return candidates;
+        }
+        AspectJExpressionPointcutAdvisor[] advisors=new AspectJExpressionPointcutAdvisor[advisorNames.length];
+        for (int i = 0; i < advisorNames.length; i++) {
+            advisors[i]=beanFactory.getBean(advisorNames[i],AspectJExpressionPointcutAdvisor.class);
         }
-        return bean;
+        candidates=new AdvisorCandidates(advisorNames,advisors);
+        this.advisorCandidates=candidates;
+        return candidates;
     }
 
-    private boolean isInfrastructureClass(Class<?> beanClass) {
-        return Advice.class.isAssignableFrom(beanClass) || Pointcut.class.isAssignableFrom(beanClass) || Advisor.class.isAssignableFrom(beanClass);
+    private static AspectJExpressionPointcutAdvisor[] findEligibleAdvisors(AspectJExpressionPointcutAdvisor[] candidates, Class<?> beanClass) {
+        List<AspectJExpressionPointcutAdvisor> eligible=new ArrayList<>();
+        for(AspectJExpressionPointcutAdvisor advisor: candidates){
+            Pointcut pointcut=advisor.getPointcut();
+            //过滤匹配类
+            if(!pointcut.getClassFilter().matches(beanClass)) continue;
+            if(matchesAnyMethod(pointcut.getMathodMatcher(),beanClass)){
+                eligible.add(advisor);
+            }
+        }
+        //稳定排序，order相同时保持注册顺序
+        eligible.sort(Comparator.comparingInt(AspectJExpressionPointcutAdvisor::getOrder));
+        return eligible.isEmpty()?NO_ADVISORS:eligible.toArray(NO_ADVISORS);
     }
 
+    //JDK代理调用时传入的是接口方法，所以类和接口上的方法都要检查
+    private static boolean matchesAnyMethod(MethodMatcher methodMatcher, Class<?> beanClass) {
+        for (Method method : beanClass.getMethods()) {
+            if(method.getDeclaringClass()!=Object.class&&methodMatcher.matches(method,beanClass)) return true;
+        }
+        for (Class<?> ifc : beanClass.getInterfaces()) {
+            for (Method method : ifc.getMethods()) {
+                if(methodMatcher.matches(method,beanClass)) return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isInfrastructureClass(Class<?> beanClass) {
+        return Advice.class.isAssignableFrom(beanClass) || Pointcut.class.isAssignableFrom(beanClass) || Advisor.class.isAssignableFrom(beanClass)
+                || TargetSource.class.isAssignableFrom(beanClass) || ProxyFactoryBean.class.isAssignableFrom(beanClass);
+    }
 
+    @Override
+    public boolean supportsBeanType(Class<?> beanType) {
+        return !isInfrastructureClass(beanType);
+    }
 
     @Override
     public void setBeanFactory(BeanFactory beanFactory)throws BeansException{
         this.beanFactory=(DefaultListableBeanFactory) beanFactory;
     }
+
+    private static final class AdvisorCandidates {
+        final String[] advisorNames;
+        final AspectJExpressionPointcutAdvisor[] advisors;
+        //每个类适用的Advisor（类和至少一个方法都匹配）
+        final Map<Class<?>, AspectJExpressionPointcutAdvisor[]> eligibleAdvisors = new ConcurrentHashMap<>();
+
+        AdvisorCandidates(String[] advisorNames, AspectJExpressionPointcutAdvisor[] advisors) {
+            this.advisorNames = advisorNames;
+            this.advisors = advisors;
+        }
+    }
 }
@@ -0,0 +1,84 @@
+package springframework.aop.target;
+
+import cn.hutool.core.bean.BeanException;
+import springframework.BeansException;
+import springframework.aop.TargetSource;
+import springframework.beans.factory.BeanFactory;
+import springframework.beans.factory.BeanFactoryAware;
+import springframework.beans.factory.ConfigurableListableBeanFactory;
+import springframework.beans.factory.DisposeableBean;
+import springframework.beans.factory.config.BeanDefinition;
+
+/**
+ * 目标对象是原型Bean的TargetSource的基类，目标对象通过BeanFactory#getBean创建，不再使用时按DisposeableBean销毁
+ */
+public abstract class AbstractPrototypeBasedTargetSource extends TargetSource implements BeanFactoryAware {
+    private String targetBeanName;
+    private BeanFactory beanFactory;
+    private volatile Class<?> targetType;
+
+    public void setTargetBeanName(String targetBeanName) {
+        this.targetBeanName = targetBeanName;
+    }
+
+    public String getTargetBeanName() {
+        return targetBeanName;
+    }
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+        if (targetBeanName == null) {
+            throw new BeansException("Property 'targetBeanName' is required");
+        }
+        this.beanFactory = beanFactory;
+        if (beanFactory instanceof ConfigurableListableBeanFactory) {
+            BeanDefinition beanDefinition = ((ConfigurableListableBeanFactory) beanFactory).getBeanDefinition(targetBeanName);
+            //单例Bean每次getBean都是同一个对象，不能作为对象池/线程本地的目标
+            if (beanDefinition.isSingleton()) {
+                throw new BeansException("Cannot use prototype-based TargetSource against non-prototype bean with name '" + targetBeanName + "'");
+            }
+            this.targetType = beanDefinition.getBeanClass();
+        }
+    }
+
+    @Override
+    public Class<?> getTargetType() {
+        Class<?> targetType = this.targetType;
+        if (targetType == null) {
+            //拿不到BeanDefinition时创建一个实例确定类型
+            Object target = newPrototypeInstance();
+            targetType = target.getClass();
+            destroyPrototypeInstance(target);
+            this.targetType = targetType;
+        }
+        return targetType;
+    }
+
+    @Override
+    public boolean isStatic() {
+        return false;
+    }
+
+    protected Object newPrototypeInstance() {
+        if (beanFactory == null) {
+            throw new IllegalStateException("BeanFactory not set on " + getClass().getSimpleName() + " for target bean '" + targetBeanName + "'");
+        }
+        try {
+            return beanFactory.getBean(targetBeanName);
+        } catch (BeansException e) {
+            throw new BeanException("Could not create prototype instance of target bean '" + targetBeanName + "'", e);
+        }
+    }
+
+    protected void destroyPrototypeInstance(Object target) {
+        if (target instanceof DisposeableBean) {
+            try {
+                ((DisposeableBean) target).destroy();
+            } catch (Exception e) {
+                //销毁失败不影响其他对象，异常交给当前线程的UncaughtExceptionHandler
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package springframework.aop.target;
+
+import springframework.aop.TargetSource;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 可以在运行时原子地替换目标对象的TargetSource。
+ * 替换后新的调用立即使用新对象，正在进行的调用继续使用它开始时取到的对象；调用路径上只有一次volatile读取
+ */
+public class HotSwappableTargetSource extends TargetSource {
+    private final Class<?> targetType;
+    private final AtomicReference<Object> target;
+
+    public HotSwappableTargetSource(Object initialTarget) {
+        if (initialTarget == null) {
+            throw new IllegalArgumentException("Target object must not be null");
+        }
+        this.targetType = initialTarget.getClass();
+        this.target = new AtomicReference<>(initialTarget);
+    }
+
+    @Override
+    public Class<?> getTargetType() {
+        return targetType;
+    }
+
+    //目标对象会变化，但不需要归还
+    @Override
+    public boolean isStatic() {
+        return false;
+    }
+
+    @Override
+    public Object getTarget() {
+        return target.get();
+    }
+
+    /**
+     * 替换目标对象，返回旧的目标对象。新对象必须是初始目标对象类型的实例，代理类和拦截器链都是按这个类型生成的
+     */
+    public Object swap(Object newTarget) {
+        if (newTarget == null) {
+            throw new IllegalArgumentException("Target object must not be null");
+        }
+        if (!targetType.isInstance(newTarget)) {
+            throw new IllegalArgumentException("New target of type [" + newTarget.getClass().getName()
+                    + "] is not an instance of [" + targetType.getName() + "]");
+        }
+        return target.getAndSet(newTarget);
+    }
+}
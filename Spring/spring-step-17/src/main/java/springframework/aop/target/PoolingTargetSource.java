@@ -0,0 +1,217 @@
+package springframework.aop.target;
+
+import springframework.BeansException;
+import springframework.beans.factory.BeanFactory;
+import springframework.beans.factory.DisposeableBean;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 对象池形式的TargetSource，适合创建代价高、又不能在线程之间共享的Bean（比如解析器、客户端）。
+ * 一个代理对象背后是一池原型Bean，每次调用从池中借出一个目标对象，调用结束后由代理归还。
+ * 借出和归还的快速路径是无锁的：空闲对象放在ConcurrentLinkedDeque中（后进先出，刚用过的对象更可能还在缓存里），
+ * 同时借出的对象数用Semaphore限制，只有池满时借出的线程才会阻塞等待，超过maxWaitMillis抛出异常
+ */
+public class PoolingTargetSource extends AbstractPrototypeBasedTargetSource implements DisposeableBean {
+    //同时存在（借出+空闲）的最大对象数
+    private int maxSize = 8;
+    //初始化时预先创建的空闲对象数
+    private int minIdle = 0;
+    //归还时最多保留的空闲对象数，多余的对象直接销毁
+    private int maxIdle = 8;
+    //池满时借出的最长等待时间，小于0表示一直等待
+    private long maxWaitMillis = -1;
+
+    private final ConcurrentLinkedDeque<Object> idleObjects = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final AtomicInteger activeCount = new AtomicInteger();
+    //借出中的对象，按对象标识区分，归还时据此拒绝重复归还和不是从本池借出的对象
+    private final Set<BorrowedObject> borrowedObjects = ConcurrentHashMap.newKeySet();
+    private volatile Semaphore permits;
+    private volatile boolean closed;
+
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder destroyedCount = new LongAdder();
+    private final LongAdder waitCount = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public void setMinIdle(int minIdle) {
+        this.minIdle = minIdle;
+    }
+
+    public void setMaxIdle(int maxIdle) {
+        this.maxIdle = maxIdle;
+    }
+
+    public void setMaxWaitMillis(long maxWaitMillis) {
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+        super.setBeanFactory(beanFactory);
+        if (maxSize <= 0 || minIdle < 0 || maxIdle < minIdle || minIdle > maxSize) {
+            throw new BeansException("Invalid pool configuration for target bean '" + getTargetBeanName()
+                    + "': maxSize=" + maxSize + ", minIdle=" + minIdle + ", maxIdle=" + maxIdle);
+        }
+        permits = new Semaphore(maxSize);
+        for (int i = 0; i < minIdle; i++) {
+            idleObjects.push(createObject());
+            idleCount.incrementAndGet();
+        }
+    }
+
+    @Override
+    public Object getTarget() {
+        Semaphore permits = this.permits;
+        if (permits == null) {
+            throw new IllegalStateException("PoolingTargetSource for target bean '" + getTargetBeanName() + "' is not initialized");
+        }
+        acquire(permits);
+        try {
+            if (closed) {
+                throw new IllegalStateException("PoolingTargetSource for target bean '" + getTargetBeanName() + "' is closed");
+            }
+            Object target = idleObjects.pollFirst();
+            if (target != null) {
+                idleCount.decrementAndGet();
+            } else {
+                target = createObject();
+            }
+            borrowedObjects.add(new BorrowedObject(target));
+            activeCount.incrementAndGet();
+            borrowCount.increment();
+            return target;
+        } catch (RuntimeException | Error e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    //先无阻塞地尝试，池满时再按超时时间等待
+    private void acquire(Semaphore permits) {
+        if (permits.tryAcquire()) {
+            return;
+        }
+        waitCount.increment();
+        try {
+            if (maxWaitMillis < 0) {
+                permits.acquire();
+            } else if (!permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                timeoutCount.increment();
+                throw new IllegalStateException("Timed out after " + maxWaitMillis + "ms waiting for a pooled instance of target bean '"
+                        + getTargetBeanName() + "' (maxSize=" + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a pooled instance of target bean '" + getTargetBeanName() + "'", e);
+        }
+    }
+
+    @Override
+    public void releaseTarget(Object target) throws Exception {
+        //多归还一次会多释放一个许可，池的对象数就不再受maxSize限制
+        if (!borrowedObjects.remove(new BorrowedObject(target))) {
+            throw new IllegalStateException("Object is not currently borrowed from PoolingTargetSource for target bean '" + getTargetBeanName() + "'");
+        }
+        activeCount.decrementAndGet();
+        try {
+            if (closed) {
+                destroyObject(target);
+            } else if (idleCount.incrementAndGet() <= maxIdle) {
+                idleObjects.push(target);
+                //放入后池被关闭，destroy可能已经清理完空闲对象
+                if (closed && idleObjects.remove(target)) {
+                    idleCount.decrementAndGet();
+                    destroyObject(target);
+                }
+            } else {
+                //空闲对象已经够多时直接销毁
+                idleCount.decrementAndGet();
+                destroyObject(target);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private Object createObject() {
+        Object target = newPrototypeInstance();
+        createdCount.increment();
+        return target;
+    }
+
+    private void destroyObject(Object target) {
+        destroyPrototypeInstance(target);
+        destroyedCount.increment();
+    }
+
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    public int getIdleCount() {
+        return idleCount.get();
+    }
+
+    public long getBorrowCount() {
+        return borrowCount.sum();
+    }
+
+    public long getCreatedCount() {
+        return createdCount.sum();
+    }
+
+    public long getDestroyedCount() {
+        return destroyedCount.sum();
+    }
+
+    //借出时池已满、需要等待的次数
+    public long getWaitCount() {
+        return waitCount.sum();
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+
+    //销毁空闲对象，借出中的对象在归还时销毁
+    @Override
+    public void destroy() throws Exception {
+        closed = true;
+        Object target;
+        while ((target = idleObjects.pollFirst()) != null) {
+            idleCount.decrementAndGet();
+            destroyObject(target);
+        }
+    }
+
+    private static final class BorrowedObject {
+        private final Object target;
+
+        BorrowedObject(Object target) {
+            this.target = target;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof BorrowedObject && ((BorrowedObject) other).target == target;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(target);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package springframework.aop.target;
+
+import springframework.beans.factory.DisposeableBean;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 每个线程使用自己的原型Bean实例的TargetSource，适合不能在线程之间共享、但可以在同一个线程中复用的Bean。
+ * 调用路径上只有一次ThreadLocal读取，不加锁；创建的实例都会被记录下来，容器关闭时统一销毁，关闭后的调用直接抛出异常
+ */
+public class ThreadLocalTargetSource extends AbstractPrototypeBasedTargetSource implements DisposeableBean {
+    //销毁时整体替换，旧线程中残留的值随之失效
+    private volatile ThreadLocal<Object> targetInThread = new ThreadLocal<>();
+    //所有线程创建过的实例，只在创建和销毁时修改
+    private final Set<Object> targetSet = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    private final LongAdder invocationCount = new LongAdder();
+    private final LongAdder hitCount = new LongAdder();
+
+    @Override
+    public Object getTarget() {
+        if (closed) {
+            throw new IllegalStateException("ThreadLocalTargetSource for target bean '" + getTargetBeanName() + "' is closed");
+        }
+        invocationCount.increment();
+        ThreadLocal<Object> targetInThread = this.targetInThread;
+        Object target = targetInThread.get();
+        if (target != null) {
+            hitCount.increment();
+            return target;
+        }
+        //当前线程第一次调用时创建
+        target = newPrototypeInstance();
+        targetSet.add(target);
+        //和destroy并发时，destroy可能已经遍历完targetSet，新实例由当前线程销毁
+        if (closed) {
+            if (targetSet.remove(target)) {
+                destroyPrototypeInstance(target);
+            }
+            throw new IllegalStateException("ThreadLocalTargetSource for target bean '" + getTargetBeanName() + "' is closed");
+        }
+        targetInThread.set(target);
+        return target;
+    }
+
+    public long getInvocationCount() {
+        return invocationCount.sum();
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public int getObjectCount() {
+        return targetSet.size();
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        closed = true;
+        targetInThread = new ThreadLocal<>();
+        for (Object target : targetSet) {
+            if (targetSet.remove(target)) {
+                destroyPrototypeInstance(target);
+            }
+        }
+    }
+}
@@ -3,4 +3,6 @@ package springframework.beans.context;
 import springframework.beans.factory.ListableBeanFactory;
 
 public interface ApplicationContext extends ListableBeanFactory,ApplicationEventPublisher {
+    //返回父容器，没有时返回null
+    ApplicationContext getParent();
 }
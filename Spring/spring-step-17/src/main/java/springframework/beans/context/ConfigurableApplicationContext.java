@@ -3,6 +3,8 @@ package springframework.beans.context;
 import springframework.BeansException;
 
 public interface ConfigurableApplicationContext extends ApplicationContext{
+    //设置父容器，需要在refresh之前调用
+    void setParent(ApplicationContext parent);
     //刷新容器
     void refresh() throws BeansException;
     //注册虚拟机钩子
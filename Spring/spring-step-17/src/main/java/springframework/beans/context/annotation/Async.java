@@ -0,0 +1,14 @@
+package springframework.beans.context.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 标记事件监听器异步执行，可以标注在监听器类或者onApplicationEvent方法上。
+ * value为执行器（Executor）Bean的名称，为空时使用事件广播器的执行器
+ */
+@Target({ElementType.TYPE,ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Async {
+    String value() default "";
+}
@@ -24,6 +24,8 @@ public class ClassPathBeanDefinitionScanner extends ClassPathScanningCandidateCo
                 if (StrUtil.isNotEmpty(beanScope)) {
                     beanDefinition.setScope(beanScope);
                 }
+                Class<?> beanClass=beanDefinition.getBeanClass();
+                beanDefinition.setPrimary(beanClass.isAnnotationPresent(Primary.class));
                 registry.registerBeanDefinition(determineBeanName(beanDefinition),beanDefinition);
             }
         }
@@ -0,0 +1,10 @@
+package springframework.beans.context.annotation;
+
+import java.lang.annotation.*;
+
+//按类型注入时有多个候选Bean，优先选择带有该注解的Bean
+@Target({ElementType.TYPE,ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Primary {
+}
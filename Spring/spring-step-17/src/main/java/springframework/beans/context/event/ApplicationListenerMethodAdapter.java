@@ -0,0 +1,50 @@
+package springframework.beans.context.event;
+
+import springframework.beans.context.ApplicationEvent;
+
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+
+/**
+ * 把@EventListener方法适配成监听器，方法和条件方法都已经绑定成生成的调用器
+ */
+public class ApplicationListenerMethodAdapter implements GenericApplicationListener<ApplicationEvent> {
+    private final String beanName;
+    private final Object bean;
+    private final String methodName;
+    private final Class<?>[] eventTypes;
+    private final BiConsumer<Object, Object> invoker;
+    private final BiPredicate<Object, Object> condition;
+
+    ApplicationListenerMethodAdapter(String beanName, Object bean, String methodName, Class<?>[] eventTypes,
+                                     BiConsumer<Object, Object> invoker, BiPredicate<Object, Object> condition) {
+        this.beanName = beanName;
+        this.bean = bean;
+        this.methodName = methodName;
+        this.eventTypes = eventTypes;
+        this.invoker = invoker;
+        this.condition = condition;
+    }
+
+    @Override
+    public boolean supportsEventType(Class<?> eventType) {
+        for (Class<?> declaredType : eventTypes) {
+            if (declaredType.isAssignableFrom(eventType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationEvent event) {
+        if (condition == null || condition.test(bean, event)) {
+            invoker.accept(bean, event);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "@EventListener " + beanName + "." + methodName;
+    }
+}
@@ -0,0 +1,202 @@
+package springframework.beans.context.event;
+
+import org.springframework.util.ErrorHandler;
+import springframework.beans.context.ApplicationEvent;
+import springframework.beans.factory.DisposeableBean;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 批量/合并投递事件的监听器适配器，适合索引刷新、配置重载这类只关心一段时间内最新事件的监听器。
+ * 收到的事件先放入缓冲区，满足以下任一条件时把缓冲区中的事件作为一个List一次性交给目标监听器：
+ * 1. 时间窗口：缓冲区收到第一个事件后经过windowMillis毫秒
+ * 2. 数量窗口：自上次投递后收到了maxBatchSize个事件
+ * 设置了keyExtractor时按key合并，每个key只保留最后一个事件，事件风暴中同一个key的重复工作会合并成一次。
+ * 投递在适配器自己的线程上依次进行，不会阻塞发布事件的线程，目标监听器也不会被并发调用。
+ * destroy之后不再缓冲，收到的事件在发布线程上立即投递
+ */
+public class BatchingApplicationListener<E extends ApplicationEvent> implements GenericApplicationListener<E>, DisposeableBean {
+    /**
+     * 接收一批事件的监听器
+     */
+    public interface BatchListener<E extends ApplicationEvent> {
+        void onApplicationEvents(List<E> events);
+    }
+
+    private final Class<E> eventType;
+    private final BatchListener<E> delegate;
+    private long windowMillis = 100;
+    private int maxBatchSize = 0;
+    private Function<? super E, ?> keyExtractor;
+    //默认交给投递线程的UncaughtExceptionHandler，投递线程继续处理后面的批次
+    private volatile ErrorHandler errorHandler = TaskExecutors.UNCAUGHT_EXCEPTION_HANDLER;
+    //同一时刻只投递一批，不使用delegate作为锁，避免和目标监听器自己的同步互相影响
+    private final Object deliveryLock = new Object();
+
+    //以下字段都由this保护
+    private List<E> pendingEvents = new ArrayList<>();
+    private Map<Object, E> pendingByKey = new LinkedHashMap<>();
+    private int receivedSinceFlush;
+    //已经截取好、等待投递的批次
+    private final Deque<List<E>> readyBatches = new ArrayDeque<>();
+    private boolean flushScheduled;
+    private ScheduledThreadPoolExecutor scheduler;
+    //destroy之后为true，不再创建投递线程
+    private boolean closed;
+
+    public BatchingApplicationListener(Class<E> eventType, BatchListener<E> delegate) {
+        this.eventType = eventType;
+        this.delegate = delegate;
+    }
+
+    //时间窗口的长度，0表示不按时间投递（只按数量投递）
+    public void setWindowMillis(long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    //数量窗口的大小，0表示不按数量投递（只按时间投递）
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    //设置后按key合并事件，每个key只投递最后一个事件
+    public void setKeyExtractor(Function<? super E, ?> keyExtractor) {
+        this.keyExtractor = keyExtractor;
+    }
+
+    public void setErrorHandler(ErrorHandler errorHandler) {
+        this.errorHandler = errorHandler != null ? errorHandler : TaskExecutors.UNCAUGHT_EXCEPTION_HANDLER;
+    }
+
+    @Override
+    public boolean supportsEventType(Class<?> eventType) {
+        return this.eventType.isAssignableFrom(eventType);
+    }
+
+    @Override
+    public void onApplicationEvent(E event) {
+        boolean deliverNow = false;
+        synchronized (this) {
+            if (keyExtractor != null) {
+                Object key = keyExtractor.apply(event);
+                //先移除再放入，让最新的事件排在后面
+                pendingByKey.remove(key);
+                pendingByKey.put(key, event);
+            } else {
+                pendingEvents.add(event);
+            }
+            receivedSinceFlush++;
+            if (closed) {
+                //投递线程已经停止，直接在当前线程投递
+                cutBatch();
+                deliverNow = true;
+            } else if (maxBatchSize > 0 && receivedSinceFlush >= maxBatchSize) {
+                //数量窗口满了立即截取一批，之后的事件进入下一批
+                cutBatch();
+                getScheduler().execute(this::deliverReadyBatches);
+            } else if (windowMillis > 0) {
+                scheduleFlush(windowMillis);
+            } else if (maxBatchSize <= 0) {
+                //两种窗口都没有配置时每个事件单独投递
+                cutBatch();
+                getScheduler().execute(this::deliverReadyBatches);
+            }
+        }
+        if (deliverNow) {
+            deliverReadyBatches();
+        }
+    }
+
+    //调用时持有this的锁；时间窗口内已经安排了投递时不再重复安排
+    private void scheduleFlush(long delayMillis) {
+        if (flushScheduled) {
+            return;
+        }
+        flushScheduled = true;
+        getScheduler().schedule(this::flush, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    //调用时持有this的锁，把缓冲区中的事件截取为一批
+    private void cutBatch() {
+        receivedSinceFlush = 0;
+        if (keyExtractor != null) {
+            if (!pendingByKey.isEmpty()) {
+                readyBatches.add(new ArrayList<>(pendingByKey.values()));
+                pendingByKey = new LinkedHashMap<>();
+            }
+        } else if (!pendingEvents.isEmpty()) {
+            readyBatches.add(pendingEvents);
+            pendingEvents = new ArrayList<>();
+        }
+    }
+
+    //调用时持有this的锁，destroy之后不会再调用
+    private ScheduledThreadPoolExecutor getScheduler() {
+        if (scheduler == null) {
+            scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "batching-listener-" + eventType.getSimpleName());
+                thread.setDaemon(true);
+                return thread;
+            });
+            //关闭后不再等时间窗口到期，剩余的事件由destroy直接投递
+            scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        }
+        return scheduler;
+    }
+
+    /**
+     * 立即投递缓冲区中的事件，缓冲区为空时什么也不做
+     */
+    public void flush() {
+        synchronized (this) {
+            flushScheduled = false;
+            cutBatch();
+        }
+        deliverReadyBatches();
+    }
+
+    private void deliverReadyBatches() {
+        //同一时刻只投递一批，保证目标监听器按顺序收到
+        synchronized (deliveryLock) {
+            while (true) {
+                List<E> batch;
+                synchronized (this) {
+                    batch = readyBatches.poll();
+                }
+                if (batch == null) {
+                    return;
+                }
+                try {
+                    delegate.onApplicationEvents(Collections.unmodifiableList(batch));
+                } catch (Throwable t) {
+                    errorHandler.handleError(t);
+                }
+            }
+        }
+    }
+
+    //投递剩余的事件后停止投递线程，之后收到的事件在发布线程上立即投递
+    @Override
+    public void destroy() throws Exception {
+        ScheduledThreadPoolExecutor scheduler;
+        synchronized (this) {
+            closed = true;
+            scheduler = this.scheduler;
+        }
+        if (scheduler != null) {
+            //丢弃还没到期的定时投递，已经截取的批次仍在readyBatches中
+            scheduler.shutdown();
+        }
+        //投递线程正在投递时在deliveryLock上等它投递完，再按顺序投递剩余的批次
+        flush();
+    }
+}
@@ -0,0 +1,317 @@
+package springframework.beans.context.event;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * 分段的内存映射日志文件。每条记录的格式为[长度][CRC32][数据]，长度为0表示该段后面没有数据。
+ * 每个段文件以它第一条记录的全局偏移量命名，段写满后换到下一个段。
+ * 追加只写入映射的内存，由后台线程定期统一force到磁盘（组提交），需要持久化保证的调用方等待提交完成。
+ * force失败后日志不再可用，之后的追加和等待提交都会抛出这个异常。
+ * 另外用一个checkpoint文件记录回放的起点
+ */
+public class EventJournal implements Closeable {
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final int HEADER_SIZE = 8;
+
+    private final File directory;
+    private final int segmentSize;
+    private final long commitIntervalMillis;
+    //已有的段：全局起始偏移量 -> 段文件
+    private final TreeMap<Long, File> segments = new TreeMap<>();
+
+    //以下字段由this保护
+    private RandomAccessFile activeFile;
+    private volatile MappedByteBuffer activeBuffer;
+    private long activeBase;
+    //已写入（但不一定已经落盘）的全局偏移量
+    private volatile long writePosition;
+    //打开日志时已有数据的末尾，之后的记录都是本次运行追加的
+    private final long recoveredPosition;
+
+    //已经force到磁盘的全局偏移量，由commitLock保护
+    private final Object commitLock = new Object();
+    private long committedPosition;
+    //提交线程force失败的原因
+    private Throwable commitFailure;
+    private final Thread committer;
+    private volatile boolean closed;
+
+    public EventJournal(File directory, int segmentSize, long commitIntervalMillis) throws IOException {
+        if (segmentSize <= HEADER_SIZE * 2) {
+            throw new IllegalArgumentException("segmentSize too small: " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.commitIntervalMillis = commitIntervalMillis;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create journal directory " + directory);
+        }
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                segments.put(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())), file);
+            }
+        }
+        if (segments.isEmpty()) {
+            openSegment(0);
+        } else {
+            //从最后一个段的有效数据末尾继续追加，写了一半的记录（CRC不对）会被覆盖
+            Map.Entry<Long, File> last = segments.lastEntry();
+            mapSegment(last.getKey(), last.getValue());
+            int end = scan(activeBuffer.duplicate(), null);
+            activeBuffer.position(end);
+            writePosition = activeBase + end;
+        }
+        recoveredPosition = writePosition;
+        committedPosition = writePosition;
+        committer = new Thread(this::commitLoop, "event-journal-committer");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    private void openSegment(long base) throws IOException {
+        File file = new File(directory, String.format("%020d", base) + SEGMENT_SUFFIX);
+        segments.put(base, file);
+        mapSegment(base, file);
+        writePosition = base;
+    }
+
+    private void mapSegment(long base, File file) throws IOException {
+        activeFile = new RandomAccessFile(file, "rw");
+        activeBuffer = activeFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentSize, activeFile.length()));
+        activeBase = base;
+    }
+
+    /**
+     * 追加一条记录，返回该记录结束位置的全局偏移量，可以用来等待提交
+     */
+    public synchronized long append(byte[] data) throws IOException {
+        if (closed) {
+            throw new IOException("Journal closed");
+        }
+        checkCommitFailure();
+        int recordSize = HEADER_SIZE + data.length;
+        //每个段至少要留下一个结束标记的位置
+        if (recordSize + HEADER_SIZE > segmentSize) {
+            throw new IOException("Event of " + data.length + " bytes does not fit into a segment of " + segmentSize + " bytes");
+        }
+        MappedByteBuffer buffer = activeBuffer;
+        if (buffer.remaining() < recordSize + HEADER_SIZE) {
+            roll(buffer);
+            buffer = activeBuffer;
+        }
+        int start = buffer.position();
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        //先写数据和校验和，最后写长度，读取时长度不为0且校验通过才算一条完整的记录
+        buffer.position(start + 4);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(data);
+        buffer.putInt(0);
+        buffer.putInt(start, data.length);
+        buffer.position(start + recordSize);
+        writePosition = activeBase + start + recordSize;
+        return writePosition;
+    }
+
+    //当前段写满，落盘后换到下一个段
+    private void roll(MappedByteBuffer buffer) throws IOException {
+        buffer.putInt(buffer.position(), 0);
+        buffer.force();
+        activeFile.close();
+        openSegment(activeBase + buffer.capacity());
+    }
+
+    /**
+     * 等待偏移量之前的记录都已经落盘，提交失败或者超时都会抛出IOException
+     */
+    public void awaitCommitted(long position, long timeoutMillis) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        synchronized (commitLock) {
+            while (committedPosition < position) {
+                checkCommitFailure();
+                if (closed) {
+                    throw new IOException("Journal closed before position " + position + " was committed");
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new IOException("Timed out after " + timeoutMillis + "ms waiting for position " + position + " to be committed");
+                }
+                commitLock.notifyAll();
+                TimeUnit.NANOSECONDS.timedWait(commitLock, remaining);
+            }
+        }
+    }
+
+    private void checkCommitFailure() throws IOException {
+        Throwable failure;
+        synchronized (commitLock) {
+            failure = commitFailure;
+        }
+        if (failure != null) {
+            throw new IOException("Journal commit failed", failure);
+        }
+    }
+
+    private void commitLoop() {
+        while (true) {
+            try {
+                synchronized (commitLock) {
+                    if (committedPosition >= writePosition && !closed) {
+                        commitLock.wait(commitIntervalMillis);
+                    }
+                }
+                commit();
+                if (closed) {
+                    return;
+                }
+            } catch (Throwable t) {
+                //包括提交线程被中断，记录失败原因并唤醒等待提交的线程，由它们抛出异常
+                synchronized (commitLock) {
+                    commitFailure = t;
+                    commitLock.notifyAll();
+                }
+                return;
+            }
+        }
+    }
+
+    //一次force覆盖这段时间内所有追加的记录
+    private void commit() {
+        long target = writePosition;
+        MappedByteBuffer buffer = activeBuffer;
+        boolean pending;
+        synchronized (commitLock) {
+            pending = committedPosition < target;
+        }
+        if (!pending) {
+            return;
+        }
+        buffer.force();
+        synchronized (commitLock) {
+            if (target > committedPosition) {
+                committedPosition = target;
+            }
+            commitLock.notifyAll();
+        }
+    }
+
+    /**
+     * 从指定的全局偏移量开始依次读取记录，返回读到的末尾位置
+     */
+    public long replay(long fromPosition, Consumer<byte[]> consumer) throws IOException {
+        return replay(fromPosition, Long.MAX_VALUE, consumer);
+    }
+
+    /**
+     * 读取[fromPosition, toPosition)之间的记录，toPosition必须是某条记录的边界，返回读到的末尾位置
+     */
+    public long replay(long fromPosition, long toPosition, Consumer<byte[]> consumer) throws IOException {
+        long end;
+        TreeMap<Long, File> segments;
+        synchronized (this) {
+            end = Math.min(toPosition, writePosition);
+            segments = new TreeMap<>(this.segments);
+        }
+        long position = Math.max(fromPosition, 0);
+        Long firstBase = segments.floorKey(position);
+        for (Map.Entry<Long, File> entry : segments.tailMap(firstBase != null ? firstBase : 0L, true).entrySet()) {
+            long base = entry.getKey();
+            if (base >= end) {
+                break;
+            }
+            try (RandomAccessFile file = new RandomAccessFile(entry.getValue(), "r")) {
+                ByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, Math.min(file.length(), end - base));
+                buffer.position((int) Math.min(buffer.limit(), Math.max(0, position - base)));
+                int segmentEnd = scan(buffer, consumer);
+                position = base + segmentEnd;
+            }
+        }
+        return position;
+    }
+
+    //从buffer的当前位置读取完整的记录，返回最后一条有效记录之后的位置
+    private static int scan(ByteBuffer buffer, Consumer<byte[]> consumer) {
+        while (buffer.remaining() >= HEADER_SIZE) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                return start;
+            }
+            byte[] data = new byte[length];
+            buffer.get(data);
+            CRC32 crc = new CRC32();
+            crc.update(data, 0, length);
+            if ((int) crc.getValue() != checksum) {
+                return start;
+            }
+            if (consumer != null) {
+                consumer.accept(data);
+            }
+        }
+        return buffer.position();
+    }
+
+    public long getWritePosition() {
+        return writePosition;
+    }
+
+    public long getRecoveredPosition() {
+        return recoveredPosition;
+    }
+
+    public long readCheckpoint() throws IOException {
+        File file = new File(directory, CHECKPOINT_FILE);
+        if (!file.exists()) {
+            return 0;
+        }
+        return Long.parseLong(new String(Files.readAllBytes(file.toPath()), StandardCharsets.US_ASCII).trim());
+    }
+
+    //先写临时文件再替换，避免写了一半的checkpoint
+    public void writeCheckpoint(long position) throws IOException {
+        File tmp = new File(directory, CHECKPOINT_FILE + ".tmp");
+        Files.write(tmp.toPath(), Long.toString(position).getBytes(StandardCharsets.US_ASCII));
+        Files.move(tmp.toPath(), new File(directory, CHECKPOINT_FILE).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            commit();
+            closed = true;
+        }
+        synchronized (commitLock) {
+            commitLock.notifyAll();
+        }
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            activeFile.close();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package springframework.beans.context.event;
+
+import java.lang.annotation.*;
+
+/**
+ * 把单例Bean的方法注册为事件监听器，方法只能有一个参数，参数类型即监听的事件类型。
+ * 容器刷新时为每个方法生成调用器并注册到事件广播器，分发事件时不再经过反射
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface EventListener {
+    //监听的事件类型，必须是参数类型的子类，为空时使用参数类型
+    Class<?>[] value() default {};
+
+    //同一个Bean上返回boolean、参数为该事件的方法名，返回false时不处理该事件
+    String condition() default "";
+}
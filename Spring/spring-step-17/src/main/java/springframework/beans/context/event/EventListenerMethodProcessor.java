@@ -0,0 +1,210 @@
+package springframework.beans.context.event;
+
+import cn.hutool.core.util.StrUtil;
+import springframework.beans.context.ApplicationEvent;
+import springframework.beans.utils.ClassUtils;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+
+/**
+ * 查找单例Bean上的@EventListener方法，并注册到事件广播器。
+ * 每个方法只在第一次遇到它所在的类时解析一次：能访问的公共方法通过LambdaMetafactory生成BiConsumer调用器，
+ * 其他方法退化为直接调用MethodHandle，两种方式在分发事件时都不会使用Method.invoke
+ */
+public class EventListenerMethodProcessor {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    //每个类上的@EventListener方法
+    private static final ClassValue<ListenerMethod[]> LISTENER_METHODS = new ClassValue<ListenerMethod[]>() {
+        @Override
+        protected ListenerMethod[] computeValue(Class<?> type) {
+            return findListenerMethods(type);
+        }
+    };
+
+    /**
+     * Bean上是否有@EventListener方法
+     */
+    public boolean hasListenerMethods(Object bean) {
+        return LISTENER_METHODS.get(getTargetClass(bean)).length > 0;
+    }
+
+    /**
+     * 为Bean上的每个@EventListener方法创建监听器并添加到广播器，返回注册的监听器个数
+     */
+    public int processBean(String beanName, Object bean, ApplicationEventMulticaster multicaster) {
+        ListenerMethod[] listenerMethods = LISTENER_METHODS.get(getTargetClass(bean));
+        for (ListenerMethod listenerMethod : listenerMethods) {
+            multicaster.addApplicationListener(new ApplicationListenerMethodAdapter(beanName, bean, listenerMethod.name,
+                    listenerMethod.eventTypes, listenerMethod.invoker, listenerMethod.condition));
+        }
+        return listenerMethods.length;
+    }
+
+    private static Class<?> getTargetClass(Object bean) {
+        Class<?> beanClass = bean.getClass();
+        return ClassUtils.isCglibProxyClass(beanClass) ? beanClass.getSuperclass() : beanClass;
+    }
+
+    private static ListenerMethod[] findListenerMethods(Class<?> targetClass) {
+        List<ListenerMethod> result = new ArrayList<>();
+        for (Class<?> clazz = targetClass; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+            for (Method method : clazz.getDeclaredMethods()) {
+                EventListener annotation = method.getAnnotation(EventListener.class);
+                if (annotation == null || method.isBridge()) {
+                    continue;
+                }
+                //子类重写的方法已经处理过
+                if (clazz != targetClass && isOverridden(targetClass, clazz, method)) {
+                    continue;
+                }
+                result.add(new ListenerMethod(targetClass, method, annotation));
+            }
+        }
+        return result.toArray(new ListenerMethod[0]);
+    }
+
+    private static boolean isOverridden(Class<?> targetClass, Class<?> declaringClass, Method method) {
+        for (Class<?> clazz = targetClass; clazz != declaringClass; clazz = clazz.getSuperclass()) {
+            try {
+                clazz.getDeclaredMethod(method.getName(), method.getParameterTypes());
+                return true;
+            } catch (NoSuchMethodException e) {
+                //继续到父类中查找
+            }
+        }
+        return false;
+    }
+
+    private static final class ListenerMethod {
+        final String name;
+        final Class<?>[] eventTypes;
+        final BiConsumer<Object, Object> invoker;
+        final BiPredicate<Object, Object> condition;
+
+        ListenerMethod(Class<?> targetClass, Method method, EventListener annotation) {
+            String description = targetClass.getName() + "." + method.getName();
+            if (method.getParameterCount() != 1 || !ApplicationEvent.class.isAssignableFrom(method.getParameterTypes()[0])) {
+                throw new IllegalStateException("@EventListener method " + description + " must have exactly one ApplicationEvent parameter");
+            }
+            Class<?> parameterType = method.getParameterTypes()[0];
+            Class<?>[] eventTypes = annotation.value().length > 0 ? annotation.value() : new Class<?>[]{parameterType};
+            for (Class<?> eventType : eventTypes) {
+                if (!parameterType.isAssignableFrom(eventType)) {
+                    throw new IllegalStateException("Event type " + eventType.getName() + " is not assignable to the parameter of " + description);
+                }
+            }
+            this.name = method.getName();
+            this.eventTypes = eventTypes;
+            this.invoker = createInvoker(method);
+            this.condition = StrUtil.isEmpty(annotation.condition()) ? null : createCondition(targetClass, annotation.condition(), parameterType, description);
+        }
+
+        private static BiPredicate<Object, Object> createCondition(Class<?> targetClass, String methodName, Class<?> parameterType, String description) {
+            for (Class<?> clazz = targetClass; clazz != null; clazz = clazz.getSuperclass()) {
+                for (Method method : clazz.getDeclaredMethods()) {
+                    if (method.getName().equals(methodName) && method.getParameterCount() == 1
+                            && method.getParameterTypes()[0].isAssignableFrom(parameterType)
+                            && method.getReturnType() == boolean.class) {
+                        return createPredicate(method);
+                    }
+                }
+            }
+            throw new IllegalStateException("No boolean condition method '" + methodName + "' accepting " + parameterType.getName() + " for " + description);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<Object, Object> createInvoker(Method method) {
+        MethodHandle handle = unreflect(method);
+        if (isLinkable(method)) {
+            try {
+                CallSite callSite = LambdaMetafactory.metafactory(LOOKUP, "accept",
+                        MethodType.methodType(BiConsumer.class),
+                        MethodType.methodType(void.class, Object.class, Object.class),
+                        handle,
+                        MethodType.methodType(void.class, method.getDeclaringClass(), method.getParameterTypes()[0]));
+                return (BiConsumer<Object, Object>) callSite.getTarget().invoke();
+            } catch (Throwable t) {
+                //无法生成时使用MethodHandle调用
+            }
+        }
+        MethodHandle generic = handle.asType(MethodType.methodType(void.class, Object.class, Object.class));
+        return (bean, event) -> {
+            try {
+                generic.invokeExact(bean, event);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException("@EventListener method " + method + " failed", t);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BiPredicate<Object, Object> createPredicate(Method method) {
+        MethodHandle handle = unreflect(method);
+        if (isLinkable(method)) {
+            try {
+                CallSite callSite = LambdaMetafactory.metafactory(LOOKUP, "test",
+                        MethodType.methodType(BiPredicate.class),
+                        MethodType.methodType(boolean.class, Object.class, Object.class),
+                        handle,
+                        MethodType.methodType(boolean.class, method.getDeclaringClass(), method.getParameterTypes()[0]));
+                return (BiPredicate<Object, Object>) callSite.getTarget().invoke();
+            } catch (Throwable t) {
+                //无法生成时使用MethodHandle调用
+            }
+        }
+        MethodHandle generic = handle.asType(MethodType.methodType(boolean.class, Object.class, Object.class));
+        return (bean, event) -> {
+            try {
+                return (boolean) generic.invokeExact(bean, event);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException("Condition method " + method + " failed", t);
+            }
+        };
+    }
+
+    private static MethodHandle unreflect(Method method) {
+        if (Modifier.isStatic(method.getModifiers())) {
+            throw new IllegalStateException("@EventListener method " + method + " must not be static");
+        }
+        try {
+            method.setAccessible(true);
+            return LOOKUP.unreflect(method);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Could not access " + method, e);
+        }
+    }
+
+    //生成的调用器类与本类在同一个类加载器中，只能直接调用对它可见的公共类的公共方法
+    private static boolean isLinkable(Method method) {
+        if (!Modifier.isPublic(method.getModifiers())) {
+            return false;
+        }
+        for (Class<?> clazz = method.getDeclaringClass(); clazz != null; clazz = clazz.getEnclosingClass()) {
+            if (!Modifier.isPublic(clazz.getModifiers())) {
+                return false;
+            }
+        }
+        try {
+            return Class.forName(method.getDeclaringClass().getName(), false, EventListenerMethodProcessor.class.getClassLoader())
+                    == method.getDeclaringClass();
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+}
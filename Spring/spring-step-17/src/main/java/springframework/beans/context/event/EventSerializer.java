@@ -0,0 +1,42 @@
+package springframework.beans.context.event;
+
+import springframework.beans.context.ApplicationEvent;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * 事件日志使用的序列化方式
+ */
+public interface EventSerializer {
+    byte[] serialize(ApplicationEvent event) throws IOException;
+
+    ApplicationEvent deserialize(byte[] data) throws IOException;
+
+    /**
+     * 默认使用Java序列化。注意ApplicationEvent的source是transient的，回放出来的事件source为null，
+     * 需要回放的数据应该放在事件自己的字段里
+     */
+    EventSerializer JAVA = new EventSerializer() {
+        @Override
+        public byte[] serialize(ApplicationEvent event) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(event);
+            }
+            return bytes.toByteArray();
+        }
+
+        @Override
+        public ApplicationEvent deserialize(byte[] data) throws IOException {
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+                return (ApplicationEvent) in.readObject();
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Unknown event class in journal", e);
+            }
+        }
+    };
+}
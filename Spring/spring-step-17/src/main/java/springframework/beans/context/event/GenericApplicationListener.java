@@ -0,0 +1,12 @@
+package springframework.beans.context.event;
+
+import springframework.beans.context.ApplicationEvent;
+import springframework.beans.context.ApplicationListener;
+
+/**
+ * 自己声明监听哪些事件类型的监听器，用于无法从泛型参数推断事件类型的监听器（比如通用的适配器）。
+ * 结果会按事件类型被广播器缓存，同一事件类型只判断一次
+ */
+public interface GenericApplicationListener<E extends ApplicationEvent> extends ApplicationListener<E> {
+    boolean supportsEventType(Class<?> eventType);
+}
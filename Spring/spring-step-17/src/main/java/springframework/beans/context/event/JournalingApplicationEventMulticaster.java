@@ -0,0 +1,170 @@
+package springframework.beans.context.event;
+
+import springframework.beans.context.ApplicationEvent;
+import springframework.beans.factory.DisposeableBean;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * 把事件先写入本地的内存映射日志再分发的事件广播器，进程重启后可以把事件回放给监听器，不需要外部消息中间件。
+ * 收到ContextRefreshedEvent时，从checkpoint开始把上次运行留下的事件依次回放给当前的监听器，回放完成后推进checkpoint。
+ * 本次运行中发布的事件（包括刷新完成之前发布的）已经实时分发过，不参与本次回放。
+ * 在容器中以applicationEventMulticaster为名注册这个Bean，并设置journalDirectory即可启用
+ */
+public class JournalingApplicationEventMulticaster extends SimpleApplicationEventMulticaster implements DisposeableBean {
+    private String journalDirectory;
+    private int segmentSize = 16 * 1024 * 1024;
+    private long commitIntervalMillis = 1;
+    private EventSerializer serializer = EventSerializer.JAVA;
+    //需要写入日志的事件类型，为空时除容器自身的事件以外全部写入
+    private Class<?>[] journaledEventTypes = new Class<?>[0];
+    //发布事件时是否等待日志落盘（多个发布者共享一次force）
+    private boolean syncOnPublish = true;
+    //等待日志落盘的最长时间
+    private long commitTimeoutMillis = 10_000;
+    //回放完成后是否把checkpoint推进到回放的末尾
+    private boolean checkpointAfterReplay = true;
+
+    private volatile EventJournal journal;
+    private volatile boolean replayed;
+
+    public void setJournalDirectory(String journalDirectory) {
+        this.journalDirectory = journalDirectory;
+    }
+
+    public void setSegmentSize(int segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public void setCommitIntervalMillis(long commitIntervalMillis) {
+        this.commitIntervalMillis = commitIntervalMillis;
+    }
+
+    public void setSerializer(EventSerializer serializer) {
+        this.serializer = serializer;
+    }
+
+    public void setJournaledEventTypes(Class<?>... journaledEventTypes) {
+        this.journaledEventTypes = journaledEventTypes;
+    }
+
+    public void setSyncOnPublish(boolean syncOnPublish) {
+        this.syncOnPublish = syncOnPublish;
+    }
+
+    public void setCommitTimeoutMillis(long commitTimeoutMillis) {
+        this.commitTimeoutMillis = commitTimeoutMillis;
+    }
+
+    public void setCheckpointAfterReplay(boolean checkpointAfterReplay) {
+        this.checkpointAfterReplay = checkpointAfterReplay;
+    }
+
+    @Override
+    public void multicastEvent(ApplicationEvent event) {
+        if (event instanceof ContextRefreshedEvent) {
+            super.multicastEvent(event);
+            if (!replayed) {
+                replay();
+            }
+            return;
+        }
+        if (shouldJournal(event)) {
+            append(event);
+        }
+        super.multicastEvent(event);
+    }
+
+    protected boolean shouldJournal(ApplicationEvent event) {
+        if (journaledEventTypes.length == 0) {
+            return !(event instanceof ApplicationContextEvent);
+        }
+        for (Class<?> type : journaledEventTypes) {
+            if (type.isInstance(event)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void append(ApplicationEvent event) {
+        try {
+            EventJournal journal = getJournal();
+            long position = journal.append(serializer.serialize(event));
+            if (syncOnPublish) {
+                journal.awaitCommitted(position, commitTimeoutMillis);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not journal event " + event.getClass().getName(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for journal commit", e);
+        }
+    }
+
+    /**
+     * 从checkpoint开始回放打开日志之前已有的事件，返回回放的事件个数
+     */
+    public synchronized int replay() {
+        replayed = true;
+        try {
+            EventJournal journal = getJournal();
+            int[] count = new int[1];
+            //只回放到打开日志时的位置，之后追加的事件在本次运行中已经分发过
+            long end = journal.replay(journal.readCheckpoint(), journal.getRecoveredPosition(), data -> {
+                try {
+                    //回放的事件不再写入日志
+                    super.multicastEvent(serializer.deserialize(data));
+                    count[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            if (checkpointAfterReplay) {
+                journal.writeCheckpoint(end);
+            }
+            return count[0];
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not replay event journal", e);
+        }
+    }
+
+    /**
+     * 把checkpoint推进到当前日志末尾，之后重启只回放这之后发布的事件
+     */
+    public void checkpoint() {
+        try {
+            EventJournal journal = getJournal();
+            journal.writeCheckpoint(journal.getWritePosition());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write journal checkpoint", e);
+        }
+    }
+
+    private EventJournal getJournal() throws IOException {
+        EventJournal journal = this.journal;
+        if (journal == null) {
+            synchronized (this) {
+                journal = this.journal;
+                if (journal == null) {
+                    if (journalDirectory == null) {
+                        throw new IllegalStateException("journalDirectory is required");
+                    }
+                    journal = new EventJournal(new File(journalDirectory), segmentSize, commitIntervalMillis);
+                    this.journal = journal;
+                }
+            }
+        }
+        return journal;
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        EventJournal journal = this.journal;
+        if (journal != null) {
+            journal.close();
+        }
+    }
+}
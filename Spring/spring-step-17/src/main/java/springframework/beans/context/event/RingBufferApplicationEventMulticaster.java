@@ -0,0 +1,256 @@
+package springframework.beans.context.event;
+
+import org.springframework.util.ErrorHandler;
+import springframework.beans.context.ApplicationEvent;
+import springframework.beans.context.ApplicationListener;
+import springframework.beans.factory.DisposeableBean;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于预分配环形缓冲区的事件广播器，适合缓存失效、指标上报这类高频事件。
+ * 发布事件只是占用一个槽位并写入事件引用，不加锁也不分配额外对象；
+ * 消费者线程批量取出已发布的事件再分发给监听器，每个监听器按对象标识固定由一个消费者线程处理（与事件类型无关），
+ * 因此同一个监听器即使监听多种事件，也按发布顺序收到事件。
+ * 缓冲区满时发布者按等待策略等待最慢的消费者。
+ * 在容器中以applicationEventMulticaster为名注册这个Bean即可替换默认的SimpleApplicationEventMulticaster
+ */
+public class RingBufferApplicationEventMulticaster extends AbstractApplicationEventMulticaster implements DisposeableBean {
+    public enum ProducerType {
+        //只有一个线程发布事件，占用槽位不需要CAS
+        SINGLE,
+        //多个线程同时发布事件
+        MULTI
+    }
+
+    private int bufferSize = 1024;
+    private ProducerType producerType = ProducerType.MULTI;
+    private WaitStrategy waitStrategy = WaitStrategy.YIELDING;
+    private int consumerThreads = 1;
+    //默认交给消费者线程的UncaughtExceptionHandler，消费者线程不会因为监听器的异常退出
+    private volatile ErrorHandler errorHandler = TaskExecutors.UNCAUGHT_EXCEPTION_HANDLER;
+
+    private volatile RingBuffer ringBuffer;
+
+    public void setBufferSize(int bufferSize) {
+        if (Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("bufferSize must be a power of 2: " + bufferSize);
+        }
+        assertNotStarted();
+        this.bufferSize = bufferSize;
+    }
+
+    public void setProducerType(ProducerType producerType) {
+        assertNotStarted();
+        this.producerType = producerType;
+    }
+
+    public void setWaitStrategy(WaitStrategy waitStrategy) {
+        assertNotStarted();
+        this.waitStrategy = waitStrategy;
+    }
+
+    public void setConsumerThreads(int consumerThreads) {
+        if (consumerThreads < 1) {
+            throw new IllegalArgumentException("consumerThreads must be positive: " + consumerThreads);
+        }
+        assertNotStarted();
+        this.consumerThreads = consumerThreads;
+    }
+
+    public void setErrorHandler(ErrorHandler errorHandler) {
+        this.errorHandler = errorHandler != null ? errorHandler : TaskExecutors.UNCAUGHT_EXCEPTION_HANDLER;
+    }
+
+    private void assertNotStarted() {
+        if (ringBuffer != null) {
+            throw new IllegalStateException("Ring buffer already started");
+        }
+    }
+
+    @Override
+    public void multicastEvent(ApplicationEvent event) {
+        RingBuffer buffer = ringBuffer;
+        if (buffer == null) {
+            buffer = start();
+        }
+        buffer.publish(event);
+    }
+
+    //第一次发布事件时创建缓冲区并启动消费者线程，之前的属性都可以通过setter配置
+    private synchronized RingBuffer start() {
+        if (ringBuffer == null) {
+            ringBuffer = new RingBuffer(bufferSize, producerType, waitStrategy, consumerThreads);
+        }
+        return ringBuffer;
+    }
+
+    //拒绝之后的发布，等正在发布和已发布的事件处理完后停止消费者线程
+    @Override
+    public void destroy() throws Exception {
+        RingBuffer buffer = ringBuffer;
+        if (buffer != null) {
+            buffer.shutdown();
+        }
+    }
+
+    private void dispatch(ApplicationEvent event, int consumerIndex, int consumerCount) {
+        for (ApplicationListener<?> listener : getApplicationListeners(event)) {
+            //不能按监听器在该事件类型数组中的下标分配，监听多种事件的监听器在不同数组中的下标不同
+            if (consumerCount > 1 && consumerIndex(listener, consumerCount) != consumerIndex) {
+                continue;
+            }
+            try {
+                doInvokeListener(listener, event);
+            } catch (Throwable t) {
+                errorHandler.handleError(t);
+            }
+        }
+    }
+
+    static int consumerIndex(ApplicationListener<?> listener, int consumerCount) {
+        return (System.identityHashCode(listener) & Integer.MAX_VALUE) % consumerCount;
+    }
+
+    private final class RingBuffer {
+        private final ApplicationEvent[] slots;
+        //每个槽位当前发布到了第几圈，消费者据此判断槽位是否已经写好
+        private final AtomicIntegerArray published;
+        private final int mask;
+        private final int indexShift;
+        private final boolean singleProducer;
+        private final WaitStrategy waitStrategy;
+        //多生产者时下一个要占用的序号
+        private final AtomicLong claimed = new AtomicLong();
+        //单生产者时下一个要占用的序号，只有发布线程读写
+        private long nextSequence;
+        //最慢的消费者已处理到的序号的缓存，避免每次发布都遍历所有消费者
+        private volatile long cachedGatingSequence = -1;
+        private final Consumer[] consumers;
+        //停止接收新事件
+        private volatile boolean running = true;
+        //正在发布（已通过running检查、还没写完槽位）的发布者数
+        private final AtomicInteger activeProducers = new AtomicInteger();
+        //所有占用的序号都已发布，消费者处理完剩余事件后退出
+        private volatile boolean drained;
+
+        RingBuffer(int bufferSize, ProducerType producerType, WaitStrategy waitStrategy, int consumerThreads) {
+            this.slots = new ApplicationEvent[bufferSize];
+            this.published = new AtomicIntegerArray(bufferSize);
+            for (int i = 0; i < bufferSize; i++) {
+                published.set(i, -1);
+            }
+            this.mask = bufferSize - 1;
+            this.indexShift = Integer.numberOfTrailingZeros(bufferSize);
+            this.singleProducer = producerType == ProducerType.SINGLE;
+            this.waitStrategy = waitStrategy;
+            this.consumers = new Consumer[consumerThreads];
+            for (int i = 0; i < consumerThreads; i++) {
+                consumers[i] = new Consumer(i);
+            }
+            for (Consumer consumer : consumers) {
+                consumer.thread.start();
+            }
+        }
+
+        void publish(ApplicationEvent event) {
+            //先登记再检查running，shutdown要么让这次发布失败，要么等它写完槽位
+            activeProducers.incrementAndGet();
+            try {
+                if (!running) {
+                    throw new IllegalStateException("Ring buffer has been shut down");
+                }
+                long sequence = singleProducer ? nextSequence++ : claimed.getAndIncrement();
+                awaitCapacity(sequence);
+                int index = (int) sequence & mask;
+                slots[index] = event;
+                //写入圈数即发布，lazySet保证消费者看到圈数时事件引用已经可见
+                published.lazySet(index, (int) (sequence >>> indexShift));
+            } finally {
+                activeProducers.decrementAndGet();
+            }
+        }
+
+        //槽位上一圈的事件还没有被所有消费者处理完时等待
+        private void awaitCapacity(long sequence) {
+            long wrapPoint = sequence - slots.length;
+            if (wrapPoint <= cachedGatingSequence) {
+                return;
+            }
+            int counter = 0;
+            long gatingSequence;
+            while (wrapPoint > (gatingSequence = minimumConsumerSequence())) {
+                waitStrategy.idle(counter++);
+            }
+            cachedGatingSequence = gatingSequence;
+        }
+
+        private long minimumConsumerSequence() {
+            long minimum = Long.MAX_VALUE;
+            for (Consumer consumer : consumers) {
+                minimum = Math.min(minimum, consumer.sequence.get());
+            }
+            return minimum;
+        }
+
+        private boolean isPublished(long sequence) {
+            return published.get((int) sequence & mask) == (int) (sequence >>> indexShift);
+        }
+
+        //停止接收新事件，等正在发布的事件写完，再等消费者处理完所有已发布的事件。
+        //等待期间消费者还在运行，缓冲区满时阻塞的发布者也能继续
+        void shutdown() throws InterruptedException {
+            running = false;
+            int counter = 0;
+            while (activeProducers.get() > 0) {
+                waitStrategy.idle(counter++);
+            }
+            drained = true;
+            for (Consumer consumer : consumers) {
+                consumer.thread.join();
+            }
+        }
+
+        private final class Consumer implements Runnable {
+            private final int index;
+            //已经处理完的最大序号
+            private final AtomicLong sequence = new AtomicLong(-1);
+            private final Thread thread;
+
+            Consumer(int index) {
+                this.index = index;
+                this.thread = new Thread(this, "ring-buffer-multicaster-" + index);
+                this.thread.setDaemon(true);
+            }
+
+            @Override
+            public void run() {
+                long next = sequence.get() + 1;
+                int counter = 0;
+                while (true) {
+                    //一次取出所有连续已发布的事件，最多一整圈
+                    long available = next - 1;
+                    while (available - next + 1 < slots.length && isPublished(available + 1)) {
+                        available++;
+                    }
+                    if (available < next) {
+                        //先读到停止标记再检查一次，保证停止前占用的序号都已经处理
+                        if (drained && !isPublished(next)) {
+                            return;
+                        }
+                        waitStrategy.idle(counter++);
+                        continue;
+                    }
+                    counter = 0;
+                    for (long s = next; s <= available; s++) {
+                        dispatch(slots[(int) s & mask], index, consumers.length);
+                    }
+                    sequence.lazySet(available);
+                    next = available + 1;
+                }
+            }
+        }
+    }
+}
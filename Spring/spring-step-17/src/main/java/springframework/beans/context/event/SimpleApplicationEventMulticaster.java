@@ -1,14 +1,167 @@
 package springframework.beans.context.event;
 
+import cn.hutool.core.util.StrUtil;
+import org.springframework.util.ErrorHandler;
+import springframework.BeansException;
 import springframework.beans.context.ApplicationEvent;
+import springframework.beans.context.ApplicationListener;
+import springframework.beans.context.annotation.Async;
+import springframework.beans.factory.BeanFactory;
 import springframework.beans.factory.config.ConfigurableBeanFactory;
+import springframework.beans.utils.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 public class SimpleApplicationEventMulticaster extends AbstractApplicationEventMulticaster {
+    //表示在发布事件的线程中直接调用监听器
+    private static final Executor SYNC = Runnable::run;
+
+    //所有监听器默认使用的执行器，为空时同步调用（标注了@Async的监听器除外）
+    private volatile Executor taskExecutor;
+    //监听器抛出异常时的处理器，为空时同步调用直接抛给发布者，异步调用交给执行器线程
+    private volatile ErrorHandler errorHandler;
+    //每个监听器实际使用的执行器，异步的监听器各自包装一个SerialExecutor保证事件按发布顺序处理
+    private final Map<ApplicationListener<?>, Executor> listenerExecutors = new ConcurrentHashMap<>();
+    //没有配置执行器时@Async监听器使用的默认执行器
+    private volatile Executor defaultAsyncExecutor;
+    //是否已经发布过事件，之后不能再更换执行器
+    private volatile boolean eventsPublished;
+
+    //作为Bean配置时使用，BeanFactory通过BeanFactoryAware注入
+    public SimpleApplicationEventMulticaster() {
+    }
+
     public SimpleApplicationEventMulticaster(ConfigurableBeanFactory beanFactory) {
+        try {
+            setBeanFactory(beanFactory);
+        } catch (BeansException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    //发布过事件后已经有事件排在各个监听器原来的执行器上，更换执行器会打乱同一监听器的处理顺序，所以只能在发布前配置
+    public synchronized void setTaskExecutor(Executor taskExecutor) {
+        if (eventsPublished) {
+            throw new IllegalStateException("Cannot change the task executor after events have been published");
+        }
+        this.taskExecutor = taskExecutor;
+        this.listenerExecutors.clear();
+    }
 
+    public Executor getTaskExecutor() {
+        return taskExecutor;
+    }
+
+    public void setErrorHandler(ErrorHandler errorHandler) {
+        this.errorHandler = errorHandler;
+    }
+
+    public ErrorHandler getErrorHandler() {
+        return errorHandler;
+    }
+
+    @Override
+    public void removeApplicationListener(ApplicationListener<?> listener) {
+        super.removeApplicationListener(listener);
+        listenerExecutors.remove(listener);
     }
 
     @Override
     public void multicastEvent(ApplicationEvent event) {
+        if (!eventsPublished) {
+            markEventsPublished();
+        }
+        //一次缓存查找得到监听器数组，异步的监听器提交到各自的执行器，其余的依次同步调用
+        for (ApplicationListener<?> listener : getApplicationListeners(event)) {
+            Executor executor = getListenerExecutor(listener);
+            if (executor == SYNC) {
+                invokeListener(listener, event);
+            } else {
+                executor.execute(() -> invokeListener(listener, event));
+            }
+        }
+    }
+
+    private synchronized void markEventsPublished() {
+        eventsPublished = true;
+    }
+
+    protected void invokeListener(ApplicationListener<?> listener, ApplicationEvent event) {
+        ErrorHandler errorHandler = this.errorHandler;
+        if (errorHandler == null) {
+            doInvokeListener(listener, event);
+            return;
+        }
+        try {
+            doInvokeListener(listener, event);
+        } catch (Throwable t) {
+            errorHandler.handleError(t);
+        }
+    }
+
+    private Executor getListenerExecutor(ApplicationListener<?> listener) {
+        Executor executor = listenerExecutors.get(listener);
+        if (executor == null) {
+            executor = listenerExecutors.computeIfAbsent(listener, this::determineExecutor);
+        }
+        return executor;
+    }
+
+    private Executor determineExecutor(ApplicationListener<?> listener) {
+        Async async = findAsyncAnnotation(listener);
+        Executor executor = taskExecutor;
+        if (async != null) {
+            if (StrUtil.isNotEmpty(async.value())) {
+                executor = getExecutorBean(async.value());
+            } else if (executor == null) {
+                executor = getDefaultAsyncExecutor();
+            }
+        }
+        return executor == null ? SYNC : new SerialExecutor(executor);
+    }
+
+    private Async findAsyncAnnotation(ApplicationListener<?> listener) {
+        Class<?> listenerClass = listener.getClass();
+        Class<?> targetClass = ClassUtils.isCglibProxyClass(listenerClass) ? listenerClass.getSuperclass() : listenerClass;
+        Async async = targetClass.getAnnotation(Async.class);
+        if (async != null) {
+            return async;
+        }
+        for (Method method : targetClass.getMethods()) {
+            if ("onApplicationEvent".equals(method.getName()) && method.getParameterCount() == 1
+                    && method.isAnnotationPresent(Async.class)) {
+                return method.getAnnotation(Async.class);
+            }
+        }
+        return null;
+    }
+
+    private Executor getExecutorBean(String beanName) {
+        BeanFactory beanFactory = getBeanFactory();
+        if (beanFactory == null) {
+            throw new IllegalStateException("No BeanFactory to look up executor '" + beanName + "'");
+        }
+        try {
+            return beanFactory.getBean(beanName, Executor.class);
+        } catch (BeansException e) {
+            throw new IllegalStateException("Could not get executor '" + beanName + "' for @Async listener", e);
+        }
+    }
+
+    private Executor getDefaultAsyncExecutor() {
+        Executor executor = defaultAsyncExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                executor = defaultAsyncExecutor;
+                if (executor == null) {
+                    executor = TaskExecutors.defaultExecutor();
+                    defaultAsyncExecutor = executor;
+                }
+            }
+        }
+        return executor;
     }
 }
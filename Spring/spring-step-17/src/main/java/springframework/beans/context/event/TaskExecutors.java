@@ -0,0 +1,80 @@
+package springframework.beans.context.event;
+
+import org.springframework.util.ErrorHandler;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 事件广播器常用的执行器。虚拟线程需要运行在JDK 21及以上，通过反射创建，编译时不依赖新版本的API
+ */
+public abstract class TaskExecutors {
+    /**
+     * 把异常交给当前线程的UncaughtExceptionHandler（没有设置时由线程组打印到System.err），当前线程继续运行。
+     * 与SimpleApplicationEventMulticaster没有配置ErrorHandler时异步监听器的异常去向一致，用于没有调用方可以接收异常的后台线程
+     */
+    public static final ErrorHandler UNCAUGHT_EXCEPTION_HANDLER = t -> {
+        Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+    };
+
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findVirtualThreadFactoryMethod();
+
+    private static Method findVirtualThreadFactoryMethod() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    public static boolean isVirtualThreadSupported() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    //每个任务一个虚拟线程，JDK 21以下抛出IllegalStateException
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (!isVirtualThreadSupported()) {
+            throw new IllegalStateException("Virtual threads require JDK 21 or later, current: " + System.getProperty("java.version"));
+        }
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create virtual thread executor", e);
+        }
+    }
+
+    /**
+     * 固定线程数、有界队列的线程池，队列满时由发布事件的线程自己执行，起到限流的作用
+     */
+    public static ExecutorService newBoundedThreadPool(int threads, int queueCapacity) {
+        return new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), daemonThreadFactory("event-multicaster-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    public static ForkJoinPool forkJoinPool() {
+        return ForkJoinPool.commonPool();
+    }
+
+    //能用虚拟线程时使用虚拟线程，否则使用ForkJoinPool公共线程池
+    public static ExecutorService defaultExecutor() {
+        return isVirtualThreadSupported() ? newVirtualThreadPerTaskExecutor() : forkJoinPool();
+    }
+
+    private static ThreadFactory daemonThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,31 @@
+package springframework.beans.context.event;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 环形缓冲区的消费者（以及缓冲区满时的生产者）没有可处理的内容时的等待方式
+ */
+public interface WaitStrategy {
+    //一直空转，延迟最低，但会占满一个CPU核，只适合生产者和消费者都有独占CPU核的场景
+    WaitStrategy BUSY_SPIN = counter -> {
+    };
+    //空转一段时间后让出CPU
+    WaitStrategy YIELDING = counter -> {
+        if (counter > 100) {
+            Thread.yield();
+        }
+    };
+    //空转、让出CPU之后短暂挂起线程，CPU占用最低，延迟最高
+    WaitStrategy PARKING = counter -> {
+        if (counter > 200) {
+            LockSupport.parkNanos(100_000L);
+        } else if (counter > 100) {
+            Thread.yield();
+        }
+    };
+
+    /**
+     * @param counter 连续等待的次数，拿到新的内容后从0重新计数
+     */
+    void idle(int counter);
+}
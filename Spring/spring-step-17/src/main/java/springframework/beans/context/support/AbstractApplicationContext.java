@@ -1,12 +1,14 @@
 package springframework.beans.context.support;
 
 import springframework.BeansException;
+import springframework.beans.context.ApplicationContext;
 import springframework.beans.context.ApplicationEvent;
 import springframework.beans.context.ApplicationListener;
 import springframework.beans.context.ConfigurableApplicationContext;
 import springframework.beans.context.event.ApplicationEventMulticaster;
 import springframework.beans.context.event.ContextClosedEvent;
 import springframework.beans.context.event.ContextRefreshedEvent;
+import springframework.beans.context.event.EventListenerMethodProcessor;
 import springframework.beans.context.event.SimpleApplicationEventMulticaster;
 import springframework.beans.core.io.DefaultResourceLoader;
 import springframework.beans.factory.ConfigurableListableBeanFactory;
@@ -14,12 +16,32 @@ import springframework.beans.factory.config.BeanFactoryPostProcessor;
 import springframework.beans.factory.config.BeanPostProcessor;
 import springframework.beans.factory.config.ConfigurableBeanFactory;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Map;
 
 public abstract class AbstractApplicationContext extends DefaultResourceLoader implements ConfigurableApplicationContext {
     public static final  String APPLICATION_EVENT_MULTICASTER_BEAN_NAME="applicationEventMulticaster";
     private ApplicationEventMulticaster applicationEventMulticaster;
+    //父容器，本容器发布的事件在本地分发后继续交给父容器分发
+    private ApplicationContext parent;
+
+    public AbstractApplicationContext() {
+    }
+
+    public AbstractApplicationContext(ApplicationContext parent) {
+        this.parent = parent;
+    }
+
+    @Override
+    public ApplicationContext getParent() {
+        return parent;
+    }
+
+    @Override
+    public void setParent(ApplicationContext parent) {
+        this.parent = parent;
+    }
     @Override
     public void refresh() throws BeansException {
        //1. 创建BeanFactory，并加载BeanDefinition
@@ -30,20 +52,57 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader i
         invokeBeanFactoryPostProcessor(beanFactory);
         //4. BeanPostProcessor需要将Bean对象实例化之前注册
         registerBeanPostProcessor(beanFactory);
-        //5. 提前实例化单例Bean对象
+        //5. 初始化事件广播器
+        initApplicationEventMulticaster();
+        //6. 注册事件监听器
+        registerListeners();
+        //7. BeanDefinition不会再被修改，冻结配置，之后对注册信息的读取都是无锁的
+        beanFactory.freezeConfiguration();
+        //8. 提前实例化单例Bean对象
         beanFactory.preInstantiateSingletons();
+        //9. 把单例Bean上的@EventListener方法注册为监听器
+        registerEventListenerMethods(beanFactory);
+        //10. 发布容器刷新完成事件
+        finishRefresh();
     }
-    private void initApplicationEventMulticaster(){
+    private void initApplicationEventMulticaster() throws BeansException {
         ConfigurableListableBeanFactory beanFactory=getBeanFactory();
-        applicationEventMulticaster=new SimpleApplicationEventMulticaster(beanFactory);
-        //将事件广播器注册为一个Bean
-        beanFactory.registerSinleton(APPLICATION_EVENT_MULTICASTER_BEAN_NAME,applicationEventMulticaster);
-
+        //配置了同名的Bean（比如设置了执行器和异常处理器的事件广播器）时直接使用
+        if(Arrays.asList(beanFactory.getBeanNamesForType(ApplicationEventMulticaster.class)).contains(APPLICATION_EVENT_MULTICASTER_BEAN_NAME)){
+            applicationEventMulticaster=beanFactory.getBean(APPLICATION_EVENT_MULTICASTER_BEAN_NAME,ApplicationEventMulticaster.class);
+            return;
+        }
+        applicationEventMulticaster=null;
+        //子容器在第一次注册监听器时才创建广播器，没有自己监听器的子容器直接把事件交给父容器
+        if(parent==null){
+            getApplicationEventMulticaster();
+        }
+    }
+    private ApplicationEventMulticaster getApplicationEventMulticaster(){
+        if(applicationEventMulticaster==null){
+            ConfigurableListableBeanFactory beanFactory=getBeanFactory();
+            applicationEventMulticaster=new SimpleApplicationEventMulticaster(beanFactory);
+            //将事件广播器注册为一个Bean
+            beanFactory.registerSinleton(APPLICATION_EVENT_MULTICASTER_BEAN_NAME,applicationEventMulticaster);
+        }
+        return applicationEventMulticaster;
     }
     private void registerListeners() throws BeansException {
         Collection<ApplicationListener> applicationListeners=getBeansOfType(ApplicationListener.class).values();
         for(ApplicationListener listener:applicationListeners){
-            applicationEventMulticaster.addApplicationListener(listener);
+            getApplicationEventMulticaster().addApplicationListener(listener);
+        }
+    }
+    private void registerEventListenerMethods(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+        EventListenerMethodProcessor processor=new EventListenerMethodProcessor();
+        for (String beanName : beanFactory.getBeanDefinitionNames()) {
+            if(!beanFactory.getBeanDefinition(beanName).isSingleton()){
+                continue;
+            }
+            Object bean=beanFactory.getBean(beanName);
+            if(processor.hasListenerMethods(bean)){
+                processor.processBean(beanName,bean,getApplicationEventMulticaster());
+            }
         }
     }
     public void finishRefresh(){
@@ -52,7 +111,13 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader i
 
     @Override
     public void publishEvent(ApplicationEvent event) {
-       applicationEventMulticaster.multicastEvent(event);
+        if(applicationEventMulticaster!=null){
+            applicationEventMulticaster.multicastEvent(event);
+        }
+        //父容器中注册的公共监听器只注册一次，所有子容器的事件都交给它分发
+        if(parent!=null){
+            parent.publishEvent(event);
+        }
     }
 
 
@@ -113,6 +178,11 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader i
         return getBeanFactory().getBeanDefinitionNames();
     }
 
+    @Override
+    public String[] getBeanNamesForType(Class<?> type) {
+        return getBeanFactory().getBeanNamesForType(type);
+    }
+
     @Override
     public <T> T getBean(Class<T> requiredType)throws BeansException {
         return getBeanFactory().getBean(requiredType);
@@ -1,12 +1,20 @@
 package springframework.beans.context.support;
 
 import springframework.BeansException;
+import springframework.beans.context.ApplicationContext;
+import springframework.beans.factory.BeanFactory;
 import springframework.beans.factory.ConfigurableListableBeanFactory;
 import springframework.beans.factory.support.DefaultListableBeanFactory;
 
 public abstract class AbstractRefreshableApplicationContext extends AbstractApplicationContext {
     private DefaultListableBeanFactory beanFactory;
 
+    public AbstractRefreshableApplicationContext() {
+    }
+
+    public AbstractRefreshableApplicationContext(ApplicationContext parent) {
+        super(parent);
+    }
 
     @Override
     protected  void refreshBeanFactory() throws BeansException{
@@ -17,7 +25,14 @@ public abstract class AbstractRefreshableApplicationContext extends AbstractAppl
         this.beanFactory=beanFactory;
     }
     private DefaultListableBeanFactory createBeanFactory(){
-        return new DefaultListableBeanFactory();
+        DefaultListableBeanFactory beanFactory=new DefaultListableBeanFactory();
+        //父容器的Bean对子容器可见，公共的基础设施Bean只需要在父容器中定义一次
+        beanFactory.setParentBeanFactory(getInternalParentBeanFactory());
+        return beanFactory;
+    }
+    private BeanFactory getInternalParentBeanFactory(){
+        ApplicationContext parent=getParent();
+        return parent instanceof AbstractApplicationContext?((AbstractApplicationContext) parent).getBeanFactory():parent;
     }
     protected abstract void loadBeanDefinitions(DefaultListableBeanFactory beanFactory) throws BeansException;
     @Override
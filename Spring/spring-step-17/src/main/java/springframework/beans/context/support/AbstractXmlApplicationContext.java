@@ -1,10 +1,17 @@
 package springframework.beans.context.support;
 
 import springframework.BeansException;
+import springframework.beans.context.ApplicationContext;
 import springframework.beans.factory.support.DefaultListableBeanFactory;
 import springframework.beans.factory.xml.XmlBeanDefinitionReader;
 
 public abstract class AbstractXmlApplicationContext extends AbstractRefreshableApplicationContext{
+    public AbstractXmlApplicationContext() {
+    }
+
+    public AbstractXmlApplicationContext(ApplicationContext parent) {
+        super(parent);
+    }
 
     //DefaultListableBeanFactory继承了BeanDefinitionRegistry接口
     @Override
@@ -1,6 +1,7 @@
 package springframework.beans.context.support;
 
 import springframework.BeansException;
+import springframework.beans.context.ApplicationContext;
 
 public class ClassPathXmlApplicationContext extends  AbstractXmlApplicationContext{
     private String[] configLocations;
@@ -14,6 +15,13 @@ public class ClassPathXmlApplicationContext extends  AbstractXmlApplicationConte
     public  ClassPathXmlApplicationContext(){
     }
     public ClassPathXmlApplicationContext(String[] configLocations)throws BeansException{
+        this(configLocations,null);
+    }
+    public ClassPathXmlApplicationContext(String configLocations,ApplicationContext parent) throws BeansException {
+        this(new String[]{configLocations},parent);
+    }
+    public ClassPathXmlApplicationContext(String[] configLocations,ApplicationContext parent)throws BeansException{
+        super(parent);
         this.configLocations=configLocations;
         refresh();
     }
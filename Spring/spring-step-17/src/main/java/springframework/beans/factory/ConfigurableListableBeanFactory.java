@@ -7,5 +7,17 @@ import springframework.beans.factory.config.ConfigurableBeanFactory;
 
 public interface ConfigurableListableBeanFactory extends ListableBeanFactory, AutowireCapableBeanFactory, ConfigurableBeanFactory {
     BeanDefinition getBeanDefinition(String beanName) throws BeansException;
-    void preInstantiateSingletons();
+    void preInstantiateSingletons() throws BeansException;
+    /**
+     * 冻结配置：发布BeanDefinition、名称数组和类型索引的只读快照，之后的读取不再加锁和复制；
+     * 冻结后仍然可以注册BeanDefinition，注册时会整体替换快照
+     */
+    void freezeConfiguration();
+    boolean isConfigurationFrozen();
+    /**
+     * 按类型解析唯一的候选Bean名称，qualifier可以为空；
+     * 有多个候选时依次按qualifier（Bean名称或类上的@Qualifier）和primary筛选，仍不唯一则抛出异常；
+     * 本地没有候选时到父BeanFactory中解析，返回的名称可以直接用于getBean
+     */
+    String resolveBeanName(Class<?> requiredType, String qualifier) throws BeansException;
 }
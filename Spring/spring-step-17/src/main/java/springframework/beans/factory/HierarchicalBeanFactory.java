@@ -1,4 +1,6 @@
 package springframework.beans.factory;
 
 public interface HierarchicalBeanFactory  extends  BeanFactory{
+    //返回父BeanFactory，没有时返回null
+    BeanFactory getParentBeanFactory();
 }
@@ -10,4 +10,6 @@ import java.util.Map;
 public interface ListableBeanFactory extends BeanFactory {
     <T> Map<String, T> getBeansOfType(@Nullable Class<T> var1) throws BeansException;
     String[] getBeanDefinitionNames();
+    //根据类型获取Bean名称，不会实例化Bean对象
+    String[] getBeanNamesForType(Class<?> type);
 }
@@ -43,7 +43,8 @@ public class PropertyPlaceholderConfigurer  implements BeanFactoryPostProcessor
                     if(startIdx !=-1 && stopIdx!=-1 && startIdx<stopIdx){
                         String propKey=strVal.substring(startIdx +2,stopIdx);
                         String propVal=properties.getProperty(propKey);
-                        buffer.replace(startIdx,startIdx+1,propVal);
+                        buffer.replace(startIdx,stopIdx+1,propVal);
+                        //同名属性会替换原来带占位符的值，而不是再追加一个
                         propertyValues.addPropertyValue(new  PropertyValue(propertyValue.getName(), buffer.toString()));
                     }
                 }
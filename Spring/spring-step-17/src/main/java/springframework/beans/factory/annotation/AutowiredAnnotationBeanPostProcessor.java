@@ -1,7 +1,5 @@
 package springframework.beans.factory.annotation;
 
-import cn.hutool.core.bean.BeanUtil;
-import org.springframework.core.annotation.AnnotationUtils;
 import springframework.BeansException;
 import springframework.PropertyValues;
 import springframework.beans.context.stereotype.Component;
@@ -10,7 +8,6 @@ import springframework.beans.factory.BeanFactoryAware;
 import springframework.beans.factory.config.ConfigurableBeanFactory;
 import springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
 import springframework.beans.utils.ClassUtils;
-import java.lang.reflect.Field;
 
 @Component
 public class AutowiredAnnotationBeanPostProcessor implements InstantiationAwareBeanPostProcessor, BeanFactoryAware {
@@ -20,38 +17,20 @@ public class AutowiredAnnotationBeanPostProcessor implements InstantiationAwareB
         this.beanFactory=(ConfigurableBeanFactory) beanFactory;
     }
 
+    //没有@Value和@Autowired字段的类不需要经过这个处理器
     @Override
-    public PropertyValues postProcessPropertyValues(PropertyValues pvs, Object bean, String beanName) throws BeansException {
-        //1. 处理注解@Value
-        Class<?> clazz= bean.getClass();
-        clazz= ClassUtils.isCglibProxy(clazz) ? clazz.getSuperclass() :clazz;
-        Field[] declaredFields=clazz.getDeclaredFields();
-        for (Field field: declaredFields) {
-            Value valueAnnotation= AnnotationUtils.getAnnotation(field,Value.class);;
-            if(valueAnnotation!=null){
-                String value= valueAnnotation.value();
-                value=beanFactory.resolveEmbeddedValue(value);
-                BeanUtil.setFieldValue(bean,field.getName(),value);
-            }
+    public boolean supportsBeanType(Class<?> beanType) {
+        return !InjectionMetadata.forClass(getUserClass(beanType)).isEmpty();
+    }
 
-        }
-        //2. 处理注解@Autowired
-        for(Field field:declaredFields){
-            Autowired autowiredAnnotation=field.getAnnotation(Autowired.class);
-            if (autowiredAnnotation!=null) {
-                Class<?> fieldType=field.getType();
-                String dependentBeanName=null;
-                Qualifier qualifierAnnotation=field.getAnnotation(Qualifier.class);
-                Object dependBean=null;
-                if (qualifierAnnotation!=null) {
-                    dependentBeanName=qualifierAnnotation.value();
-                    dependBean=beanFactory.getBean(dependentBeanName,fieldType);
-                }else {
-                    dependBean=beanFactory.getBean(fieldType);
-                }
-                BeanUtil.setFieldValue(bean,field.getName(),dependBean);
-            }
-        }
+    @Override
+    public PropertyValues postProcessPropertyValues(PropertyValues pvs, Object bean, String beanName) throws BeansException {
+        //注入信息按类缓存，先处理@Value再处理@Autowired，父类中的字段同样会被注入
+        InjectionMetadata.forClass(getUserClass(bean.getClass())).inject(bean,beanFactory);
         return pvs;
     }
+
+    private static Class<?> getUserClass(Class<?> clazz) {
+        return ClassUtils.isCglibProxyClass(clazz) ? clazz.getSuperclass() : clazz;
+    }
 }
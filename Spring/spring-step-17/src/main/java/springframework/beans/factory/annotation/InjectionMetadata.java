@@ -0,0 +1,204 @@
+package springframework.beans.factory.annotation;
+
+import cn.hutool.core.convert.Convert;
+import cn.hutool.core.util.ClassUtil;
+import cn.hutool.core.util.StrUtil;
+import org.springframework.core.annotation.AnnotationUtils;
+import springframework.BeansException;
+import springframework.beans.factory.ConfigurableListableBeanFactory;
+import springframework.beans.factory.config.ConfigurableBeanFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一个类的注解注入信息：整个继承体系中带@Value和@Autowired的字段只解析一次，
+ * 字段转换成MethodHandle，@Value中的占位符也预先拆分好，注入时只需要依次执行这些注入器
+ */
+public class InjectionMetadata {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final String PLACEHOLDER_PREFIX = "${";
+    private static final String PLACEHOLDER_SUFFIX = "}";
+
+    //每个类的注入信息，类被卸载时随之回收
+    private static final ClassValue<InjectionMetadata> CACHE = new ClassValue<InjectionMetadata>() {
+        @Override
+        protected InjectionMetadata computeValue(Class<?> type) {
+            return new InjectionMetadata(type);
+        }
+    };
+
+    private final Class<?> targetClass;
+    //先注入@Value再注入@Autowired，与原来的处理顺序一致
+    private final InjectedElement[] elements;
+
+    public static InjectionMetadata forClass(Class<?> clazz) {
+        return CACHE.get(clazz);
+    }
+
+    private InjectionMetadata(Class<?> targetClass) {
+        this.targetClass = targetClass;
+        List<Class<?>> hierarchy = new ArrayList<>();
+        for (Class<?> clazz = targetClass; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+            hierarchy.add(0, clazz);
+        }
+        List<InjectedElement> valueElements = new ArrayList<>();
+        List<InjectedElement> autowiredElements = new ArrayList<>();
+        //父类的字段先注入
+        for (Class<?> clazz : hierarchy) {
+            for (Field field : clazz.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                Value valueAnnotation = AnnotationUtils.getAnnotation(field, Value.class);
+                if (valueAnnotation != null) {
+                    valueElements.add(new ValueElement(field, valueAnnotation.value()));
+                }
+                if (field.getAnnotation(Autowired.class) != null) {
+                    Qualifier qualifierAnnotation = field.getAnnotation(Qualifier.class);
+                    String qualifier = qualifierAnnotation != null ? qualifierAnnotation.value() : null;
+                    autowiredElements.add(new AutowiredElement(field, qualifier));
+                }
+            }
+        }
+        valueElements.addAll(autowiredElements);
+        this.elements = valueElements.toArray(new InjectedElement[0]);
+    }
+
+    public boolean isEmpty() {
+        return elements.length == 0;
+    }
+
+    public void inject(Object bean, ConfigurableBeanFactory beanFactory) throws BeansException {
+        for (InjectedElement element : elements) {
+            element.inject(bean, beanFactory);
+        }
+    }
+
+    /**
+     * 单个待注入的字段，类型转换规则与hutool的BeanUtil.setFieldValue一致
+     */
+    private abstract static class InjectedElement {
+        protected final Field field;
+        private final MethodHandle setter;
+
+        InjectedElement(Field field) {
+            this.field = field;
+            try {
+                field.setAccessible(true);
+                this.setter = LOOKUP.unreflectSetter(field);
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException("Field [" + field.getName() + "] of " + field.getDeclaringClass().getName() + " is not writable", e);
+            }
+        }
+
+        abstract void inject(Object bean, ConfigurableBeanFactory beanFactory) throws BeansException;
+
+        protected void setValue(Object bean, Object value) throws BeansException {
+            Class<?> fieldType = field.getType();
+            if (value == null) {
+                value = ClassUtil.getDefaultValue(fieldType);
+            } else if (!ClassUtil.isAssignable(fieldType, value.getClass())) {
+                Object converted = Convert.convert(fieldType, value);
+                if (converted != null) {
+                    value = converted;
+                }
+            }
+            try {
+                setter.invoke(bean, value);
+            } catch (Exception e) {
+                throw new BeansException("Could not inject field [" + field.getName() + "] of " + field.getDeclaringClass().getName(), e);
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new BeansException("Could not inject field [" + field.getName() + "] of " + field.getDeclaringClass().getName(), new RuntimeException(t));
+            }
+        }
+    }
+
+    /**
+     * @Value字段：模板按占位符拆分成片段，字面量直接拼接，占位符交给容器的字符串解析器
+     */
+    private static class ValueElement extends InjectedElement {
+        //偶数位是字面量，奇数位是占位符的key
+        private final String[] segments;
+
+        ValueElement(Field field, String template) {
+            super(field);
+            this.segments = parse(template);
+        }
+
+        private static String[] parse(String template) {
+            List<String> segments = new ArrayList<>();
+            int from = 0;
+            while (true) {
+                int startIdx = template.indexOf(PLACEHOLDER_PREFIX, from);
+                int stopIdx = startIdx == -1 ? -1 : template.indexOf(PLACEHOLDER_SUFFIX, startIdx + PLACEHOLDER_PREFIX.length());
+                if (stopIdx == -1) {
+                    segments.add(template.substring(from));
+                    return segments.toArray(new String[0]);
+                }
+                segments.add(template.substring(from, startIdx));
+                segments.add(template.substring(startIdx + PLACEHOLDER_PREFIX.length(), stopIdx));
+                from = stopIdx + PLACEHOLDER_SUFFIX.length();
+            }
+        }
+
+        @Override
+        void inject(Object bean, ConfigurableBeanFactory beanFactory) throws BeansException {
+            //没有占位符
+            if (segments.length == 1) {
+                setValue(bean, segments[0]);
+                return;
+            }
+            StringBuilder value = new StringBuilder();
+            for (int i = 0; i < segments.length; i++) {
+                if ((i & 1) == 0) {
+                    value.append(segments[i]);
+                    continue;
+                }
+                String resolved = beanFactory.resolveEmbeddedValue(segments[i]);
+                if (resolved == null) {
+                    throw new BeansException("Could not resolve placeholder '" + segments[i] + "' for field [" + field.getName() + "]");
+                }
+                value.append(resolved);
+            }
+            setValue(bean, value.toString());
+        }
+    }
+
+    /**
+     * @Autowired字段：按类型解析唯一的候选Bean，有@Qualifier时先按Bean名称或类上的@Qualifier筛选
+     */
+    private static class AutowiredElement extends InjectedElement {
+        private final String qualifier;
+
+        AutowiredElement(Field field, String qualifier) {
+            super(field);
+            this.qualifier = StrUtil.isEmpty(qualifier) ? null : qualifier;
+        }
+
+        @Override
+        void inject(Object bean, ConfigurableBeanFactory beanFactory) throws BeansException {
+            Object dependBean;
+            if (beanFactory instanceof ConfigurableListableBeanFactory) {
+                //解析结果由容器缓存，按类型注入和按名称获取的开销一致
+                dependBean = beanFactory.getBean(((ConfigurableListableBeanFactory) beanFactory).resolveBeanName(field.getType(), qualifier));
+            } else {
+                dependBean = qualifier != null
+                        ? beanFactory.getBean(qualifier, field.getType())
+                        : beanFactory.getBean(field.getType());
+            }
+            setValue(bean, dependBean);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "InjectionMetadata{" + targetClass.getName() + ", elements=" + elements.length + '}';
+    }
+}
@@ -12,6 +12,8 @@ public class BeanDefinition {
     //默认是单例模式
     private boolean singleton=true;
     private boolean prototype=false;
+    //按类型注入有多个候选时优先使用
+    private boolean primary=false;
 
     public String getScope() {
         return scope;
@@ -41,6 +43,14 @@ public class BeanDefinition {
         this.prototype = prototype;
     }
 
+    public boolean isPrimary() {
+        return primary;
+    }
+
+    public void setPrimary(boolean primary) {
+        this.primary = primary;
+    }
+
     public BeanDefinition(Class beanClass) {
         this.beanClass = beanClass;
         this.propertyValues=new PropertyValues();
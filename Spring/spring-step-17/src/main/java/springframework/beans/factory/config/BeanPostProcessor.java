@@ -15,4 +15,12 @@ public interface BeanPostProcessor {
         return bean;
     }
 
+    /**
+     * 该处理器是否处理这种类型的Bean，返回false时该类型的Bean创建过程中会直接跳过这个处理器。
+     * 每种Bean类型只会判断一次
+     */
+    default boolean supportsBeanType(Class<?> beanType) {
+        return true;
+    }
+
 }
@@ -2,11 +2,14 @@ package springframework.beans.factory.config;
 
 import com.sun.istack.internal.Nullable;
 import org.springframework.util.StringValueResolver;
+import springframework.beans.factory.BeanFactory;
 import springframework.beans.factory.HierarchicalBeanFactory;
 
 public interface ConfigurableBeanFactory  extends HierarchicalBeanFactory ,SingletonBeanRegistry{
     String SCOPE_SINGLETON = "singleton";
     String SCOPE_PROTOTYPE = "prototype";
+    //设置父BeanFactory，本地没有定义的Bean到父BeanFactory中查找
+    void setParentBeanFactory(BeanFactory parentBeanFactory);
     void addBeanPostProcessor(BeanPostProcessor beanPostProcessor);
     void destroySingletons() throws Exception;
     @Nullable
@@ -20,7 +20,9 @@ public interface InstantiationAwareBeanPostProcessor extends BeanPostProcessor {
     default Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
         return bean;
     }
-    public Object getEarlyBeanReference(Object bean, String beanName);
+    default Object getEarlyBeanReference(Object bean, String beanName) {
+        return bean;
+    }
 
 
 }
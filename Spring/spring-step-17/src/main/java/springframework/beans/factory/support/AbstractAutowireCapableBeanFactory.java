@@ -1,9 +1,7 @@
 package springframework.beans.factory.support;
 
 import cn.hutool.core.bean.BeanException;
-import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.core.util.TypeUtil;
 import com.sun.istack.internal.Nullable;
 import org.springframework.core.convert.ConversionService;
 import springframework.BeansException;
@@ -13,44 +11,30 @@ import springframework.beans.factory.*;
 import springframework.beans.factory.config.*;
 
 import java.lang.reflect.Constructor;
-import java.lang.reflect.Method;
 import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFactory implements AutowireCapableBeanFactory {
-    //这里使用cglib的代理方法创建bean实例
-    private InstantiationStrategy instantiationStrategy = new CglibSubclassingInstantiationStrategy();
+    //默认通过缓存的构造函数句柄直接创建bean实例，需要子类化时可以设置为CglibSubclassingInstantiationStrategy
+    private InstantiationStrategy instantiationStrategy = new MethodHandleInstantiationStrategy();
     private PropertyValues propertyValues;
+    //每个Bean的创建计划，缓存构造函数、初始化/销毁方法和属性setter的反射解析结果
+    private final Map<String, BeanCreationPlan> creationPlanCache = new ConcurrentHashMap<>();
 
     //用来床架bean的函数
     @Override
     protected Object createBean(String beanName, BeanDefinition beanDefinition, Object[] args) throws BeansException {
-        Object bean = null;
-        try {
-            bean = resolveBeforeInstantiation(beanName, beanDefinition);
-            if (null != bean) {
-                return bean;
-            }
-            bean = ctreatBeanInstance(beanDefinition, beanName, args);
-            //在设置Bean对象的属性之前，运行BeanPostProcesppr接口修改属性值
-            applyBeanPostProcessorsBeforeApplyingPropertyValues(beanName, bean, beanDefinition);
-            //给bean对象填充属性
-            applyPropertyValues(beanName, bean, beanDefinition);
-            //执行Beand对象的初始化方法和BeanPostProcessor接口的前置方法和后置处理方法
-            bean = initializeBean(beanName, bean, beanDefinition);
-        } catch (Exception e) {
-            throw new BeansException("Instantiation of bean failed", e);
-        }
-        //注册了实现了DisposeableBean接口的Bean对象
-        registerDisposableBeanIfNeccessary(beanName, bean, beanDefinition);
-
-        if (beanDefinition.isSingleton()) {
-            registerSinleton(beanName, bean);
+        Object bean = resolveBeforeInstantiation(beanName, beanDefinition);
+        if (null != bean) {
+            return bean;
         }
-        return bean;
+        return doCreateBean(beanName, beanDefinition, args);
     }
 
     protected Object doCreateBean(String beanName, BeanDefinition beanDefinition, Object[] args) {
         Object bean = null;
+        Object exposedObject = null;
         try {
             //实例化Bean对象
             bean = ctreatBeanInstance(beanDefinition, beanName, args);
@@ -59,21 +43,28 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
                 Object finalBean = bean;
                 addSingletonFactory(beanName, () -> getEarlyBeanReference(beanName, beanDefinition, finalBean));
             }
-            // 在设置 Bean 属性之前，允许 BeanPostProcessor 修改属性值
-            applyBeanPostProcessorsBeforeApplyingPropertyValues(beanName, bean, beanDefinition);
+            // 在设置 Bean 属性之前，允许 BeanPostProcessor 修改属性值（只作用于本次实例化）
+            PropertyValues propertyValues = applyBeanPostProcessorsBeforeApplyingPropertyValues(beanName, bean, beanDefinition);
             // 给 Bean 填充属性
-            applyPropertyValues(beanName, bean, beanDefinition);
+            applyPropertyValues(beanName, bean, beanDefinition, propertyValues);
             // 执行 Bean 的初始化方法和 BeanPostProcessor 的前置和后置处理方法
-            bean = initializeBean(beanName, bean, beanDefinition);
+            exposedObject = initializeBean(beanName, bean, beanDefinition);
+            registerDisposableBeanIfNeccessary(beanName, exposedObject, beanDefinition);
         } catch (BeansException e) {
             throw new BeanException("Instantiation of Bean faild", e);
         }
-        registerDisposableBeanIfNeccessary(beanName, bean, beanDefinition);
         // 判断 SCOPE_SINGLETON、SCOPE_PROTOTYPE
-        Object exposedObject = bean;
         if (beanDefinition.isSingleton()) {
-            // 获取代理对象
-            exposedObject = getSingleton(beanName);
+            // 发生过循环依赖时，其他Bean持有的是提前暴露的对象（可能是代理对象），发布时要与之保持一致
+            Object earlySingletonReference = earlySingletonObjects.get(beanName);
+            if (null != earlySingletonReference && earlySingletonReference != exposedObject) {
+                if (exposedObject != bean) {
+                    //初始化后处理又换了一个对象，其他Bean已经注入的提前引用不是最终对象
+                    throw new BeanException("Bean with name '" + beanName + "' has been injected into other beans in its raw version as part of a circular reference, "
+                            + "but has eventually been wrapped by a BeanPostProcessor that does not support early references");
+                }
+                exposedObject = earlySingletonReference;
+            }
             registerSinleton(beanName, exposedObject);
         }
         return exposedObject;
@@ -82,14 +73,20 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 
     protected Object getEarlyBeanReference(String beanName, BeanDefinition beanDefinition, Object bean) {
         Object exposedObject = bean;
-        for (BeanPostProcessor beanPostProcessor : getBeanPostProcessors()) {
-            if (beanPostProcessor instanceof InstantiationAwareBeanPostProcessor) {
-                exposedObject=((InstantiationAwareBeanPostProcessor) beanPostProcessor).getEarlyBeanReference(exposedObject, beanName);
-                if (null == exposedObject) return exposedObject;
-            } }
+        for (InstantiationAwareBeanPostProcessor processor : getBeanPostProcessorCache(beanDefinition.getBeanClass()).instantiationAware) {
+            exposedObject = processor.getEarlyBeanReference(exposedObject, beanName);
+            if (null == exposedObject) return exposedObject;
+        }
         return exposedObject;
     }
 
+    /**
+     * 获取对该类型Bean生效的处理器，按角色分好组并按类型过滤后缓存
+     */
+    BeanPostProcessorCache getBeanPostProcessorCache(Class<?> beanType) {
+        return getBeanPostProcessorCache().forBeanType(beanType);
+    }
+
     /**
      * 执行Bean实例化前的操作
      */
@@ -97,7 +94,7 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
         Object bean = applyBeanPostProcessorsBeforeInstantiation(beanDefinition.getBeanClass(), beanName);
         if (null != bean) {
             //  应用Bean的后置增强器
-            bean = applyBeanPostProcessorsAfterInitialization(bean, beanName);
+            bean = applyBeanPostProcessorsAfterInitialization(getBeanPostProcessorCache(beanDefinition.getBeanClass()), bean, beanName);
         }
         return bean;
     }
@@ -105,12 +102,10 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
      * 执行Bean实例化前的操作
      */
     protected Object applyBeanPostProcessorsBeforeInstantiation(Class<?> beanClass, String beanName) throws BeansException {
-        for (BeanPostProcessor beanPostProcessor : getBeanPostProcessors()) {
-            if (beanPostProcessor instanceof InstantiationAwareBeanPostProcessor) {
-                Object result = ((InstantiationAwareBeanPostProcessor) beanPostProcessor).postProcessBeforeInstantiation(beanClass, beanName);
-                if (null != result) {
-                    return result;
-                }
+        for (InstantiationAwareBeanPostProcessor processor : getBeanPostProcessorCache(beanClass).instantiationAware) {
+            Object result = processor.postProcessBeforeInstantiation(beanClass, beanName);
+            if (null != result) {
+                return result;
             }
         }
         return null;
@@ -118,12 +113,28 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 
 
 
-    protected void registerDisposableBeanIfNeccessary(String beanName,Object bean, BeanDefinition beanDefinition){
+    protected void registerDisposableBeanIfNeccessary(String beanName,Object bean, BeanDefinition beanDefinition) throws BeansException {
         //非singleton类型的bean对象不必执行销毁方法
         if(!beanDefinition.isSingleton())return;;
         if(bean instanceof DisposeableBean || StrUtil.isNotEmpty(beanDefinition.getDestroyMethodName())){
-            registerDisposableBean(beanName,new DisposableBeanAdapter(bean,beanName,beanDefinition));
+            registerDisposableBean(beanName,new DisposableBeanAdapter(bean,beanName,beanDefinition,getCreationPlan(beanName,beanDefinition).getDestroyMethod()));
+        }
+    }
+
+    /**
+     * 获取Bean的创建计划，同一个BeanDefinition只解析一次
+     */
+    protected BeanCreationPlan getCreationPlan(String beanName, BeanDefinition beanDefinition) throws BeansException {
+        BeanCreationPlan plan = creationPlanCache.get(beanName);
+        if (plan == null || !plan.isFor(beanDefinition)) {
+            plan = new BeanCreationPlan(beanName, beanDefinition);
+            creationPlanCache.put(beanName, plan);
         }
+        return plan;
+    }
+
+    protected void clearCreationPlan(String beanName) {
+        creationPlanCache.remove(beanName);
     }
     private Object initializeBean(String beanName,Object bean, BeanDefinition beanDefinition) throws BeansException {
         //如果该bean标记类Aware的接口
@@ -138,8 +149,9 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
                 ((BeanNameAware)bean).setBeanName(beanName);
             }
         }
+        BeanPostProcessorCache processors=getBeanPostProcessorCache(beanDefinition.getBeanClass());
         //1. 执行BeanPostProcessor Before前置处理
-        Object wrappedBean=applyBeanPostProcessorsBeforeInitialization(bean,beanName);
+        Object wrappedBean=applyBeanPostProcessorsBeforeInitialization(processors,bean,beanName);
         //2. 待完成的内容
         try{
             invokeInitMethods(beanName,wrappedBean,beanDefinition);
@@ -148,7 +160,7 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
         }
 
         //3. 执行BeanPostProcessor After后置处理
-        wrappedBean=applyBeanPostProcessorsAfterInitialization(bean,beanName);
+        wrappedBean=applyBeanPostProcessorsAfterInitialization(processors,wrappedBean,beanName);
         return wrappedBean;
     }
     private void invokeInitMethods(String beanName,Object bean, BeanDefinition beanDefinition) throws Exception, BeansException {
@@ -156,22 +168,19 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
        if(bean instanceof InitializingBean){
            ((InitializingBean) bean).afterPropertiesSet();
        }
-       //2. 配置信息init-method{判断是为了避免二次销毁}
-        String initMethodName=beanDefinition.getInitMethodName();
-       if(StrUtil.isNotEmpty(initMethodName)){
-           Method iniMethod=beanDefinition.getBeanClass().getMethod(initMethodName);
-           if(null==iniMethod){
-               throw  new BeansException("Cou;d not find an init method named '"+initMethodName+"' on bean with name '"+beanName+"'");
-           }
-           iniMethod.invoke(bean);
-       }
+       //2. 配置信息init-method{判断是为了避免二次销毁}，方法句柄在创建计划中已经解析好
+       getCreationPlan(beanName,beanDefinition).invokeInitMethod(bean);
 
     }
     @Override
     public Object applyBeanPostProcessorsAfterInitialization(Object existingBean, String beanName) throws BeansException {
+        return applyBeanPostProcessorsAfterInitialization(getBeanPostProcessorCache(existingBean.getClass()),existingBean,beanName);
+    }
+
+    Object applyBeanPostProcessorsAfterInitialization(BeanPostProcessorCache processors, Object existingBean, String beanName) throws BeansException {
         Object result=existingBean;
-        for(BeanPostProcessor processor :getBeanPostProcessors()){
-            Object current=processor.postProcessBeforeInitialization(result,beanName);
+        for(BeanPostProcessor processor :processors.all){
+            Object current=processor.postProcessAfterInitialization(result,beanName);
             if(null==current) return result;
             result=current;
         }
@@ -180,9 +189,13 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 
     @Override
     public Object applyBeanPostProcessorsBeforeInitialization(Object existingBean, String beanName) throws BeansException {
+        return applyBeanPostProcessorsBeforeInitialization(getBeanPostProcessorCache(existingBean.getClass()),existingBean,beanName);
+    }
+
+    Object applyBeanPostProcessorsBeforeInitialization(BeanPostProcessorCache processors, Object existingBean, String beanName) throws BeansException {
         Object result=existingBean;
-        for(BeanPostProcessor processor :getBeanPostProcessors()){
-            Object current=processor.postProcessAfterInitialization(result,beanName);
+        for(BeanPostProcessor processor :processors.all){
+            Object current=processor.postProcessBeforeInitialization(result,beanName);
             if(null==current) return result;
             result=current;
         }
@@ -190,34 +203,28 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
     }
 
     protected Object ctreatBeanInstance(BeanDefinition beanDefinition, String beanName, @Nullable Object[] args) throws BeansException {
-        Constructor constructorToUser=null;
-        Class<?> beanClass=beanDefinition.getBeanClass();
-         Constructor<?>[] declaredConstructors=beanClass.getDeclaredConstructors();
-        for (Constructor<?> declaredConstructor : declaredConstructors) {
-            if(args!=null && declaredConstructor.getParameterTypes().length==args.length)
-            {
-                constructorToUser=declaredConstructor;
-                break;
-            }
-        }
+        Constructor<?> constructorToUser=getCreationPlan(beanName,beanDefinition).resolveConstructor(args);
         return  getInstantiationStrategy().instatiate(beanDefinition,beanName,constructorToUser,args);
     }
     //该方法用于给Bean对象填充属性
     protected  void applyPropertyValues(String beanName, Object bean , BeanDefinition beanDefinition){
+        applyPropertyValues(beanName, bean, beanDefinition, beanDefinition.getPropertyValues());
+    }
+    protected  void applyPropertyValues(String beanName, Object bean , BeanDefinition beanDefinition, PropertyValues propertyValues){
         try{
-            //或的bean的属性集合
-            PropertyValues propertyValues = beanDefinition.getPropertyValues();
+            BeanCreationPlan plan = getCreationPlan(beanName, beanDefinition);
             for (PropertyValue propertyValue : propertyValues.getPropertyValues()) {
                 //取出属性名和属性值
                 String name=propertyValue.getName();
                 Object value=propertyValue.getValue();
+                BeanCreationPlan.PropertyInjector injector=plan.getPropertyInjector(name);
                 if(value instanceof BeanReference){
                     //例如A依赖B，获取B的实例化对象
                     BeanReference beanReference=(BeanReference) value;
                     value=getBean(beanReference.getBeanName());
                 }else {
                     Class<?> sourceType=value.getClass();
-                    Class<?> targetType=(Class<?>) TypeUtil.getFieldType(bean.getClass(),name);
+                    Class<?> targetType=injector.getPropertyType();
                     ConversionService conversionService=getConversionService();
                     if(conversionService!=null){
                         if(conversionService.canConvert(sourceType,targetType)){
@@ -226,10 +233,10 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
                     }
                 }
                 //属性填充
-                BeanUtil.setFieldValue(bean,name,value);
+                injector.inject(bean,value);
             }
         } catch (Exception | BeansException e) {
-            throw new BeanException("Error setting property values："+beanName);
+            throw new BeanException(e,"Error setting property values："+beanName);
         }
     }
 
@@ -243,17 +250,24 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
     public void setInstantiationStrategy(InstantiationStrategy instantiationStrategy){
         this.instantiationStrategy=instantiationStrategy;
     }
-    protected void applyBeanPostProcessorsBeforeApplyingPropertyValues(String beanName,Object bean ,BeanDefinition beanDefinition) throws BeansException {
-        for (BeanPostProcessor beanPostProcessor : getBeanPostProcessors()) {
-            if(beanPostProcessor instanceof  InstantiationAwareBeanPostProcessor){
-                PropertyValues pvs=((InstantiationAwareBeanPostProcessor)beanPostProcessor).postProcessPropertyValues(beanDefinition.getPropertyValues(),bean,beanName);
-                if (pvs!=null) {
-                    for (PropertyValue propertyValue : pvs.getPropertyValues()) {
-                        beanDefinition.getPropertyValues().addPropertyValue(propertyValue);
-                    }
+    /**
+     * 返回本次实例化要填充的属性：BeanPostProcessor返回的属性叠加在BeanDefinition的属性之上（同名替换），
+     * BeanDefinition本身不会被修改，因此原型Bean反复创建时属性集合不会越来越大
+     */
+    protected PropertyValues applyBeanPostProcessorsBeforeApplyingPropertyValues(String beanName,Object bean ,BeanDefinition beanDefinition) throws BeansException {
+        PropertyValues propertyValues=beanDefinition.getPropertyValues();
+        for (InstantiationAwareBeanPostProcessor processor : getBeanPostProcessorCache(beanDefinition.getBeanClass()).instantiationAware) {
+            PropertyValues pvs=processor.postProcessPropertyValues(propertyValues,bean,beanName);
+            //返回的就是传入的属性集合时，没有需要叠加的内容
+            if (pvs!=null && pvs!=propertyValues) {
+                if(propertyValues==beanDefinition.getPropertyValues()){
+                    propertyValues=new PropertyValues(propertyValues);
+                }
+                for (PropertyValue propertyValue : pvs.getPropertyValues()) {
+                    propertyValues.addPropertyValue(propertyValue);
                 }
             }
-
         }
+        return propertyValues;
     }
 }
@@ -1,29 +1,52 @@
 package springframework.beans.factory.support;
 
+import cn.hutool.core.bean.BeanException;
 import com.sun.istack.internal.Nullable;
 import org.springframework.util.Assert;
 import org.springframework.util.StringValueResolver;
 import springframework.BeansException;
+import springframework.beans.factory.BeanFactory;
 import springframework.beans.factory.FactoryBean;
 import springframework.beans.factory.config.BeanDefinition;
 import springframework.beans.factory.config.BeanPostProcessor;
 import springframework.beans.factory.config.ConfigurableBeanFactory;
 import springframework.beans.utils.ClassUtils;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport implements ConfigurableBeanFactory {
-    private final List<BeanPostProcessor> beanPostProcessors = new ArrayList<>();
+    //按加入顺序保存，重复加入时移到最后
+    private final Set<BeanPostProcessor> beanPostProcessors = new LinkedHashSet<>();
+    //按角色分组的处理器数组，处理器变化时置空，下次使用时重建
+    private volatile BeanPostProcessorCache beanPostProcessorCache;
     private final List<StringValueResolver> embeddedValueResolvers = new CopyOnWriteArrayList<>();
     @Nullable
     private ClassLoader beanClassLoader = ClassUtils.getDefaultClassLoader();
+    @Nullable
+    private BeanFactory parentBeanFactory;
+
+    @Override
+    public BeanFactory getParentBeanFactory() {
+        return this.parentBeanFactory;
+    }
+
+    @Override
+    public void setParentBeanFactory(BeanFactory parentBeanFactory) {
+        if (this.parentBeanFactory != null && this.parentBeanFactory != parentBeanFactory) {
+            throw new IllegalStateException("Already associated with parent BeanFactory: " + this.parentBeanFactory);
+        }
+        this.parentBeanFactory = parentBeanFactory;
+    }
     @Override
     public Object getBean(String Name,Object... args) throws BeansException {
         Object bean = getSingleton(Name);
         if (bean != null){
-            return bean;
+            return getObjectForBeanInstance(bean,Name);
         }
         return doGetBean(Name,args);
     }
@@ -59,35 +82,53 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
     public Object getBean(String name) throws BeansException {
         Object bean=getSingleton(name);
         if (bean != null){
-            return bean;
+            //FactoryBean单例也要返回它创建的对象
+            return getObjectForBeanInstance(bean,name);
         }
         return doGetBean(name,null);
     }
 
     @Override
     public <T> T getBean(String name, Class<T> requiredType) throws BeansException {
-        Object bean=getSingleton(name);
-        if (bean != null && (bean.getClass()==requiredType||requiredType.isAssignableFrom(bean.getClass()))){
-            return (T) bean;
+        //和getBean(name)走同一条路径：FactoryBean返回它创建的对象，本地没有定义时交给父BeanFactory
+        Object bean=getBean(name);
+        if(!requiredType.isInstance(bean)){
+            throw new BeansException("Bean named '"+name+"' is expected to be of type '"+requiredType.getName()
+                    +"' but was actually of type '"+bean.getClass().getName()+"'");
         }
-        BeanDefinition beanDefinition=getBeanDefinition(name);
-        if(beanDefinition.getBeanClass() !=requiredType && requiredType.isAssignableFrom(beanDefinition.getClass()))
-            return null;
-        return (T) doGetBean(name,null);
+        return requiredType.cast(bean);
     }
 
 
     //抽象方法交给子类区实现
     protected abstract BeanDefinition getBeanDefinition(String beanName) throws BeansException;
+    protected abstract boolean containsBeanDefinition(String beanName);
     protected abstract Object createBean(String beanName ,BeanDefinition beanDefinition,Object[] args)throws BeansException;
     public List<BeanPostProcessor> getBeanPostProcessors() {
-        return this.beanPostProcessors;
+        return Collections.unmodifiableList(Arrays.asList(getBeanPostProcessorCache().all));
     }
 
     @Override
     public void addBeanPostProcessor(BeanPostProcessor beanPostProcessor) {
-        this.beanPostProcessors.remove(beanPostProcessor);
-        this.beanPostProcessors.add(beanPostProcessor);
+        synchronized (this.beanPostProcessors) {
+            this.beanPostProcessors.remove(beanPostProcessor);
+            this.beanPostProcessors.add(beanPostProcessor);
+            this.beanPostProcessorCache = null;
+        }
+    }
+
+    BeanPostProcessorCache getBeanPostProcessorCache() {
+        BeanPostProcessorCache cache = this.beanPostProcessorCache;
+        if (cache == null) {
+            synchronized (this.beanPostProcessors) {
+                cache = this.beanPostProcessorCache;
+                if (cache == null) {
+                    cache = new BeanPostProcessorCache(this.beanPostProcessors.toArray(new BeanPostProcessor[0]));
+                    this.beanPostProcessorCache = cache;
+                }
+            }
+        }
+        return cache;
     }
     protected <T>T doGetBean(final String name,final Object[] args) throws BeansException {
         Object sharedInstance=getSingleton(name);
@@ -95,8 +136,24 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
             //如果是FactoryBean类，则需要调用FactoryBean#getObject
             return (T) getObjectForBeanInstance(sharedInstance,name);
         }
+        //本地没有定义时交给父BeanFactory，父子容器可以共享基础设施Bean
+        if(parentBeanFactory!=null&&!containsBeanDefinition(name)){
+            return (T) (args!=null?parentBeanFactory.getBean(name,args):parentBeanFactory.getBean(name));
+        }
         BeanDefinition beanDefinition=getBeanDefinition(name);
-        Object bean=createBean(name,beanDefinition,args);
+        Object bean;
+        if(beanDefinition.isSingleton()){
+            //单例Bean在各自的创建锁内创建，并发的首次getBean只会创建一次
+            bean=getSingleton(name,()->{
+                try {
+                    return createBean(name,beanDefinition,args);
+                } catch (BeansException e) {
+                    throw new BeanException("Instantiation of singleton bean ["+name+"] failed", e);
+                }
+            });
+        }else {
+            bean=createBean(name,beanDefinition,args);
+        }
         return (T) getObjectForBeanInstance(bean,name);
     }
     private Object getObjectForBeanInstance(Object beanInstance, String beanName) throws BeansException {
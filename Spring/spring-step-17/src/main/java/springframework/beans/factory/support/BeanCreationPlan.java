@@ -0,0 +1,147 @@
+package springframework.beans.factory.support;
+
+import cn.hutool.core.convert.Convert;
+import cn.hutool.core.util.ClassUtil;
+import cn.hutool.core.util.StrUtil;
+import springframework.BeansException;
+import springframework.beans.factory.config.BeanDefinition;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bean的创建计划：每个BeanDefinition只做一次反射解析，缓存构造函数、初始化/销毁方法句柄以及每个属性的setter，
+ * 之后每次创建Bean（尤其是原型Bean）都直接使用这些解析结果
+ */
+public class BeanCreationPlan {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final BeanDefinition beanDefinition;
+    private final Class<?> beanClass;
+    //按参数个数索引的构造函数，与原来遍历getDeclaredConstructors()时取第一个匹配的规则一致
+    private final Map<Integer, Constructor<?>> constructorsByArgCount = new HashMap<>();
+    private final MethodHandle initMethod;
+    private final MethodHandle destroyMethod;
+    //属性名到setter的缓存，第一次填充该属性时解析
+    private final Map<String, PropertyInjector> propertyInjectors = new ConcurrentHashMap<>();
+
+    public BeanCreationPlan(String beanName, BeanDefinition beanDefinition) throws BeansException {
+        this.beanDefinition = beanDefinition;
+        this.beanClass = beanDefinition.getBeanClass();
+        for (Constructor<?> constructor : beanClass.getDeclaredConstructors()) {
+            constructorsByArgCount.putIfAbsent(constructor.getParameterCount(), constructor);
+        }
+        this.initMethod = resolveMethod(beanName, beanDefinition.getInitMethodName(), "init");
+        this.destroyMethod = resolveMethod(beanName, beanDefinition.getDestroyMethodName(), "destroy");
+    }
+
+    private MethodHandle resolveMethod(String beanName, String methodName, String kind) throws BeansException {
+        if (StrUtil.isEmpty(methodName)) {
+            return null;
+        }
+        try {
+            Method method = beanClass.getMethod(methodName);
+            method.setAccessible(true);
+            return LOOKUP.unreflect(method);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new BeansException("Could not find an " + kind + " method named '" + methodName + "' on bean with name '" + beanName + "'", e);
+        }
+    }
+
+    //判断计划是否仍然对应当前的BeanDefinition（重新注册或者修改了Bean类型后需要重新生成）
+    public boolean isFor(BeanDefinition beanDefinition) {
+        return this.beanDefinition == beanDefinition && this.beanClass == beanDefinition.getBeanClass();
+    }
+
+    public Constructor<?> resolveConstructor(Object[] args) {
+        if (args == null) {
+            return null;
+        }
+        return constructorsByArgCount.get(args.length);
+    }
+
+    public void invokeInitMethod(Object bean) throws Exception {
+        if (initMethod != null) {
+            invoke(initMethod, bean);
+        }
+    }
+
+    public MethodHandle getDestroyMethod() {
+        return destroyMethod;
+    }
+
+    public PropertyInjector getPropertyInjector(String propertyName) {
+        PropertyInjector injector = propertyInjectors.get(propertyName);
+        if (injector == null) {
+            injector = propertyInjectors.computeIfAbsent(propertyName, this::createPropertyInjector);
+        }
+        return injector;
+    }
+
+    private PropertyInjector createPropertyInjector(String propertyName) {
+        for (Class<?> clazz = beanClass; clazz != null; clazz = clazz.getSuperclass()) {
+            try {
+                Field field = clazz.getDeclaredField(propertyName);
+                field.setAccessible(true);
+                return new PropertyInjector(field.getType(), LOOKUP.unreflectSetter(field));
+            } catch (NoSuchFieldException e) {
+                //继续到父类中查找
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException("Field [" + propertyName + "] of " + beanClass.getName() + " is not writable", e);
+            }
+        }
+        throw new IllegalArgumentException("Field [" + propertyName + "] not exist in " + beanClass.getName());
+    }
+
+    static void invoke(MethodHandle methodHandle, Object bean) throws Exception {
+        try {
+            methodHandle.invoke(bean);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new InvocationTargetException(t);
+        }
+    }
+
+    /**
+     * 单个属性的setter，类型转换规则与hutool的BeanUtil.setFieldValue一致
+     */
+    public static class PropertyInjector {
+        private final Class<?> propertyType;
+        private final MethodHandle setter;
+
+        PropertyInjector(Class<?> propertyType, MethodHandle setter) {
+            this.propertyType = propertyType;
+            this.setter = setter;
+        }
+
+        public Class<?> getPropertyType() {
+            return propertyType;
+        }
+
+        public void inject(Object bean, Object value) throws Exception {
+            if (value == null) {
+                value = ClassUtil.getDefaultValue(propertyType);
+            } else if (!ClassUtil.isAssignable(propertyType, value.getClass())) {
+                Object converted = Convert.convert(propertyType, value);
+                if (converted != null) {
+                    value = converted;
+                }
+            }
+            try {
+                setter.invoke(bean, value);
+            } catch (Exception | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package springframework.beans.factory.support;
 
+import springframework.BeansException;
 import springframework.beans.factory.config.BeanDefinition;
 
 public interface BeanDefinitionRegistry {
     //用来注册BeanDefinition
     void registerBeanDefinition(String beanName , BeanDefinition beanDefinition);
     boolean containsBeanDefinition(String beanName);
+    //移除BeanDefinition，同时从类型索引中移除
+    void removeBeanDefinition(String beanName) throws BeansException;
 }
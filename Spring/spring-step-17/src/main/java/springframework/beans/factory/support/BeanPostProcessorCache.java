@@ -0,0 +1,60 @@
+package springframework.beans.factory.support;
+
+import springframework.beans.factory.config.BeanPostProcessor;
+import springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按角色预先分好组的BeanPostProcessor数组，处理器列表变化时整体重建。
+ * 每种Bean类型还会缓存一份过滤后的结果，不处理该类型的处理器在创建Bean时直接跳过
+ */
+final class BeanPostProcessorCache {
+    //所有处理器，用于初始化前后的处理
+    final BeanPostProcessor[] all;
+    //InstantiationAwareBeanPostProcessor，用于实例化前、属性填充前以及提前暴露引用
+    final InstantiationAwareBeanPostProcessor[] instantiationAware;
+    //按Bean类型过滤后的处理器
+    private final Map<Class<?>, BeanPostProcessorCache> byBeanType;
+
+    BeanPostProcessorCache(BeanPostProcessor[] processors) {
+        this(processors, new ConcurrentHashMap<>());
+    }
+
+    private BeanPostProcessorCache(BeanPostProcessor[] processors, Map<Class<?>, BeanPostProcessorCache> byBeanType) {
+        this.all = processors;
+        List<InstantiationAwareBeanPostProcessor> instantiationAware = new ArrayList<>();
+        for (BeanPostProcessor processor : processors) {
+            if (processor instanceof InstantiationAwareBeanPostProcessor) {
+                instantiationAware.add((InstantiationAwareBeanPostProcessor) processor);
+            }
+        }
+        this.instantiationAware = instantiationAware.toArray(new InstantiationAwareBeanPostProcessor[0]);
+        this.byBeanType = byBeanType;
+    }
+
+    BeanPostProcessorCache forBeanType(Class<?> beanType) {
+        if (beanType == null || byBeanType == null) {
+            return this;
+        }
+        BeanPostProcessorCache cache = byBeanType.get(beanType);
+        if (cache == null) {
+            cache = byBeanType.computeIfAbsent(beanType, this::filter);
+        }
+        return cache;
+    }
+
+    private BeanPostProcessorCache filter(Class<?> beanType) {
+        List<BeanPostProcessor> applicable = new ArrayList<>(all.length);
+        for (BeanPostProcessor processor : all) {
+            if (processor.supportsBeanType(beanType)) {
+                applicable.add(processor);
+            }
+        }
+        //过滤后的结果不再继续按类型缓存
+        return new BeanPostProcessorCache(applicable.toArray(new BeanPostProcessor[0]), null);
+    }
+}
@@ -8,34 +8,147 @@ import org.springframework.beans.factory.config.NamedBeanHolder;
 import org.springframework.core.ResolvableType;
 import org.springframework.lang.Nullable;
 import springframework.BeansException;
+import springframework.PropertyValue;
 import springframework.beans.factory.ConfigurableListableBeanFactory;
+import springframework.beans.factory.annotation.Autowired;
+import springframework.beans.factory.annotation.Qualifier;
 import springframework.beans.factory.config.BeanDefinition;
 import springframework.beans.factory.config.BeanPostProcessor;
+import springframework.beans.factory.config.BeanReference;
+import springframework.beans.utils.ClassUtils;
+
+import java.lang.reflect.Field;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 
 public  class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFactory implements BeanDefinitionRegistry, ConfigurableListableBeanFactory {
-    private Map<String, BeanDefinition> beanDefinitionMap =new HashMap<>();
+    //注册阶段使用的可变集合，读写都要持有beanDefinitionMap的锁；冻结后读取只走frozenSnapshot
+    private final Map<String, BeanDefinition> beanDefinitionMap =new LinkedHashMap<>();
+    //类型到Bean名称的索引，包含Bean类的所有父类和接口，注册BeanDefinition时维护
+    private final Map<Class<?>, Set<String>> beanNamesByType = new HashMap<>();
+    //冻结配置后发布的只读快照，之后再注册BeanDefinition会整体替换快照
+    private volatile ConfigurationSnapshot frozenSnapshot;
+    //是否并行提前实例化单例Bean，关闭时按依赖顺序串行创建
+    private boolean parallelPreInstantiation = false;
+    //并行实例化使用的线程池，为空时使用ForkJoinPool.commonPool()
+    private ForkJoinPool preInstantiationPool;
+    //每个单例Bean提前实例化的耗时（纳秒）
+    private final Map<String, Long> singletonCreationNanos = new ConcurrentHashMap<>();
+    //按类型（和qualifier）解析出的唯一Bean名称，注册BeanDefinition时清空
+    private final Map<Map.Entry<Class<?>, String>, String> resolvedBeanNames = new ConcurrentHashMap<>();
 
     public Map<String, BeanDefinition> getBeanDefinitionMap() {
-        return beanDefinitionMap;
+        ConfigurationSnapshot snapshot=frozenSnapshot;
+        if(snapshot!=null){
+            return snapshot.beanDefinitions;
+        }
+        synchronized (beanDefinitionMap){
+            return Collections.unmodifiableMap(new LinkedHashMap<>(beanDefinitionMap));
+        }
     }
 
     @Override
     public void registerBeanDefinition(String beanName, BeanDefinition beanDefinition) {
-        beanDefinitionMap.put(beanName,beanDefinition);
+        synchronized (beanDefinitionMap){
+            BeanDefinition oldBeanDefinition=beanDefinitionMap.put(beanName,beanDefinition);
+            //同名覆盖时，先把旧定义从类型索引中移除
+            if(oldBeanDefinition!=null){
+                removeFromTypeIndex(beanName,oldBeanDefinition);
+                clearCreationPlan(beanName);
+            }
+            addToTypeIndex(beanName,beanDefinition);
+            resolvedBeanNames.clear();
+            //冻结后注册的BeanDefinition，重新生成快照后一次性替换，读取的线程看到的要么是旧快照要么是新快照
+            if(frozenSnapshot!=null){
+                frozenSnapshot=new ConfigurationSnapshot(beanDefinitionMap,beanNamesByType);
+            }
+        }
+    }
+
+    @Override
+    public void removeBeanDefinition(String beanName) throws BeansException {
+        synchronized (beanDefinitionMap){
+            BeanDefinition oldBeanDefinition=beanDefinitionMap.remove(beanName);
+            if(oldBeanDefinition==null){
+                throw new BeansException("No bean named '"+beanName+"' is defined");
+            }
+            removeFromTypeIndex(beanName,oldBeanDefinition);
+            clearCreationPlan(beanName);
+            removeSingleton(beanName);
+            resolvedBeanNames.clear();
+            if(frozenSnapshot!=null){
+                frozenSnapshot=new ConfigurationSnapshot(beanDefinitionMap,beanNamesByType);
+            }
+        }
+    }
+
+    @Override
+    public void freezeConfiguration() {
+        synchronized (beanDefinitionMap){
+            frozenSnapshot=new ConfigurationSnapshot(beanDefinitionMap,beanNamesByType);
+        }
+    }
+
+    @Override
+    public boolean isConfigurationFrozen() {
+        return frozenSnapshot!=null;
+    }
+
+    private void addToTypeIndex(String beanName, BeanDefinition beanDefinition) {
+        if(beanDefinition.getBeanClass()==null) return;
+        for (Class<?> type : ClassUtils.getAllTypesForClass(beanDefinition.getBeanClass())) {
+            beanNamesByType.computeIfAbsent(type, k -> new LinkedHashSet<>()).add(beanName);
+        }
+    }
+
+    private void removeFromTypeIndex(String beanName, BeanDefinition beanDefinition) {
+        if(beanDefinition.getBeanClass()==null) return;
+        for (Class<?> type : ClassUtils.getAllTypesForClass(beanDefinition.getBeanClass())) {
+            Set<String> beanNames=beanNamesByType.get(type);
+            if(beanNames!=null){
+                beanNames.remove(beanName);
+                if(beanNames.isEmpty()){
+                    beanNamesByType.remove(type);
+                }
+            }
+        }
     }
 
 
     @Override
     public boolean containsBeanDefinition(String beanName) {
         Assert.notNull(beanName, "Bean name must not be null");
-        return this.beanDefinitionMap.containsKey(beanName);
+        ConfigurationSnapshot snapshot=frozenSnapshot;
+        if(snapshot!=null){
+            return snapshot.beanDefinitions.containsKey(beanName);
+        }
+        synchronized (beanDefinitionMap){
+            return this.beanDefinitionMap.containsKey(beanName);
+        }
     }
 
     @Override
     public BeanDefinition getBeanDefinition(String beanName) throws BeansException {
-        BeanDefinition beanDefinition=beanDefinitionMap.get(beanName);
+        BeanDefinition beanDefinition;
+        ConfigurationSnapshot snapshot=frozenSnapshot;
+        if(snapshot!=null){
+            beanDefinition=snapshot.beanDefinitions.get(beanName);
+        }else {
+            synchronized (beanDefinitionMap){
+                beanDefinition=beanDefinitionMap.get(beanName);
+            }
+        }
         if(beanDefinition==null){
             throw new BeansException("No bean named '"+beanName+"' is defined");
         }
@@ -43,25 +156,166 @@ public  class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFact
     }
 
     @Override
-    public void preInstantiateSingletons() {
+    public void preInstantiateSingletons() throws BeansException {
+        Map<String, Set<String>> dependencies = resolveSingletonDependencies();
+        //处在循环依赖中的Bean无法排序，最后串行创建，依靠三级缓存提前暴露引用
+        Set<String> cyclicBeanNames = new LinkedHashSet<>();
+        List<String> sortedBeanNames = sortByDependencies(dependencies, cyclicBeanNames);
+        if (parallelPreInstantiation) {
+            preInstantiateInParallel(sortedBeanNames, dependencies);
+        } else {
+            for (String beanName : sortedBeanNames) {
+                preInstantiateSingleton(beanName);
+            }
+        }
+        for (String beanName : cyclicBeanNames) {
+            preInstantiateSingleton(beanName);
+        }
+    }
 
+    //构建单例Bean之间的依赖图，来源是BeanReference属性和@Autowired字段
+    private Map<String, Set<String>> resolveSingletonDependencies() throws BeansException {
+        Map<String, BeanDefinition> beanDefinitions = getBeanDefinitionMap();
+        Map<String, Set<String>> dependencies = new LinkedHashMap<>();
+        for (Map.Entry<String, BeanDefinition> entry : beanDefinitions.entrySet()) {
+            if (entry.getValue().isSingleton()) {
+                dependencies.put(entry.getKey(), new LinkedHashSet<>());
+            }
+        }
+        for (Map.Entry<String, Set<String>> entry : dependencies.entrySet()) {
+            BeanDefinition beanDefinition = beanDefinitions.get(entry.getKey());
+            Set<String> dependsOn = entry.getValue();
+            for (PropertyValue propertyValue : beanDefinition.getPropertyValues().getPropertyValues()) {
+                if (propertyValue.getValue() instanceof BeanReference) {
+                    dependsOn.add(((BeanReference) propertyValue.getValue()).getBeanName());
+                }
+            }
+            for (Class<?> clazz = beanDefinition.getBeanClass(); clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+                for (Field field : clazz.getDeclaredFields()) {
+                    if (field.getAnnotation(Autowired.class) == null) continue;
+                    Qualifier qualifier = field.getAnnotation(Qualifier.class);
+                    try {
+                        dependsOn.add(resolveBeanName(field.getType(), qualifier != null ? qualifier.value() : null));
+                    } catch (BeansException e) {
+                        //无法唯一确定时保守地依赖所有候选，注入时再报错
+                        Collections.addAll(dependsOn, getBeanNamesForType(field.getType()));
+                    }
+                }
+            }
+            //只保留单例之间的依赖，原型Bean在创建时按需生成
+            dependsOn.retainAll(dependencies.keySet());
+            dependsOn.remove(entry.getKey());
+        }
+        return dependencies;
+    }
+
+    //拓扑排序，被依赖的Bean排在前面；无法排序的（处于环中的）Bean放入cyclicBeanNames
+    private List<String> sortByDependencies(Map<String, Set<String>> dependencies, Set<String> cyclicBeanNames) {
+        Map<String, Integer> inDegree = new HashMap<>();
+        Map<String, List<String>> dependents = new HashMap<>();
+        for (Map.Entry<String, Set<String>> entry : dependencies.entrySet()) {
+            inDegree.put(entry.getKey(), entry.getValue().size());
+            for (String dependency : entry.getValue()) {
+                dependents.computeIfAbsent(dependency, k -> new ArrayList<>()).add(entry.getKey());
+            }
+        }
+        List<String> sorted = new ArrayList<>(dependencies.size());
+        for (Map.Entry<String, Integer> entry : inDegree.entrySet()) {
+            if (entry.getValue() == 0) sorted.add(entry.getKey());
+        }
+        for (int i = 0; i < sorted.size(); i++) {
+            for (String dependent : dependents.getOrDefault(sorted.get(i), Collections.emptyList())) {
+                if (inDegree.merge(dependent, -1, Integer::sum) == 0) {
+                    sorted.add(dependent);
+                }
+            }
+        }
+        for (String beanName : dependencies.keySet()) {
+            if (inDegree.get(beanName) > 0) cyclicBeanNames.add(beanName);
+        }
+        return sorted;
+    }
+
+    //每个Bean在它依赖的Bean全部完成后提交到线程池，互不依赖的子树并行创建
+    private void preInstantiateInParallel(List<String> sortedBeanNames, Map<String, Set<String>> dependencies) throws BeansException {
+        ForkJoinPool pool = preInstantiationPool != null ? preInstantiationPool : ForkJoinPool.commonPool();
+        Map<String, CompletableFuture<Void>> futures = new HashMap<>();
+        for (String beanName : sortedBeanNames) {
+            CompletableFuture<?>[] dependencyFutures = dependencies.get(beanName).stream()
+                    .map(futures::get)
+                    .toArray(CompletableFuture<?>[]::new);
+            futures.put(beanName, CompletableFuture.allOf(dependencyFutures).thenRunAsync(() -> {
+                try {
+                    preInstantiateSingleton(beanName);
+                } catch (BeansException e) {
+                    throw new CompletionException(e);
+                }
+            }, pool));
+        }
+        try {
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof BeansException) {
+                throw (BeansException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private void preInstantiateSingleton(String beanName) throws BeansException {
+        long start = System.nanoTime();
+        getBean(beanName);
+        singletonCreationNanos.put(beanName, System.nanoTime() - start);
+    }
+
+    public void setParallelPreInstantiation(boolean parallelPreInstantiation) {
+        this.parallelPreInstantiation = parallelPreInstantiation;
+    }
+
+    public void setPreInstantiationPool(ForkJoinPool preInstantiationPool) {
+        this.preInstantiationPool = preInstantiationPool;
+    }
+
+    public Map<String, Long> getSingletonCreationNanos() {
+        return Collections.unmodifiableMap(singletonCreationNanos);
     }
 
 
     @Override
     public <T> Map<String, T> getBeansOfType(Class<T> var1) throws BeansException {
         Map<String, T> result =new HashMap<>();
-        for(String  beanName: beanDefinitionMap.keySet()){
-            if(beanDefinitionMap.get(beanName).getBeanClass() == var1||var1.isAssignableFrom(beanDefinitionMap.get(beanName).getBeanClass())){
-                result.put(beanName, (T) getBean(beanName));
-            }
+        for(String  beanName: getBeanNamesForType(var1)){
+            result.put(beanName, (T) getBean(beanName));
         }
         return result;
     }
 
+    @Override
+    public String[] getBeanNamesForType(Class<?> type) {
+        ConfigurationSnapshot snapshot=frozenSnapshot;
+        if(snapshot!=null){
+            String[] beanNames=snapshot.beanNamesByType.get(type);
+            //快照内部的数组是共享的，返回副本，调用方修改不会影响其他线程
+            return beanNames!=null ? beanNames.clone() : ConfigurationSnapshot.NO_NAMES;
+        }
+        synchronized (beanDefinitionMap){
+            Set<String> beanNames=beanNamesByType.get(type);
+            if(beanNames==null){
+                return ConfigurationSnapshot.NO_NAMES;
+            }
+            return beanNames.toArray(new String[0]);
+        }
+    }
+
     @Override
     public String[] getBeanDefinitionNames() {
-        return beanDefinitionMap.keySet().toArray(new String[beanDefinitionMap.keySet().size()]);
+        ConfigurationSnapshot snapshot=frozenSnapshot;
+        if(snapshot!=null){
+            return snapshot.beanDefinitionNames.clone();
+        }
+        synchronized (beanDefinitionMap){
+            return beanDefinitionMap.keySet().toArray(new String[0]);
+        }
     }
 
     @Override
@@ -71,7 +325,89 @@ public  class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFact
 
     @Override
     public <T> T getBean(Class<T> requiredType) throws BeansException {
-        return (T) this.getBeansOfType(requiredType);
+        //本地没有这个类型的Bean时到父BeanFactory中查找
+        if (getParentBeanFactory() != null && getBeanNamesForType(requiredType).length == 0) {
+            return getParentBeanFactory().getBean(requiredType);
+        }
+        return (T) getBean(resolveBeanName(requiredType, null));
+    }
+
+    @Override
+    public String resolveBeanName(Class<?> requiredType, String qualifier) throws BeansException {
+        //本地没有这个类型的Bean时由父BeanFactory解析，结果不在本地缓存，父容器的定义变化时不会失效
+        if (getParentBeanFactory() instanceof ConfigurableListableBeanFactory && getBeanNamesForType(requiredType).length == 0) {
+            String beanName = ((ConfigurableListableBeanFactory) getParentBeanFactory()).resolveBeanName(requiredType, qualifier);
+            if (containsBeanDefinition(beanName)) {
+                //getBean(beanName)会取到本地的同名Bean，而不是父容器中解析出的这个
+                throw new BeansException("No qualifying bean of type '" + requiredType.getName() + "' available: bean '" + beanName
+                        + "' of the parent factory is shadowed by a local bean definition of another type");
+            }
+            return beanName;
+        }
+        Map.Entry<Class<?>, String> key = new AbstractMap.SimpleImmutableEntry<>(requiredType, qualifier == null ? "" : qualifier);
+        String beanName = resolvedBeanNames.get(key);
+        if (beanName == null) {
+            //解析失败不缓存，之后注册了新的Bean还可以重新解析
+            beanName = determineCandidate(requiredType, key.getValue());
+            resolvedBeanNames.put(key, beanName);
+        }
+        return beanName;
+    }
+
+    private String determineCandidate(Class<?> requiredType, String qualifier) throws BeansException {
+        String[] candidates = getBeanNamesForType(requiredType);
+        if (!qualifier.isEmpty()) {
+            List<String> qualified = new ArrayList<>();
+            for (String candidate : candidates) {
+                Class<?> beanClass = getBeanDefinition(candidate).getBeanClass();
+                Qualifier classQualifier = beanClass.getAnnotation(Qualifier.class);
+                if (candidate.equals(qualifier) || (classQualifier != null && qualifier.equals(classQualifier.value()))) {
+                    qualified.add(candidate);
+                }
+            }
+            candidates = qualified.toArray(new String[0]);
+        }
+        if (candidates.length == 1) {
+            return candidates[0];
+        }
+        String description = "'" + requiredType.getName() + "'" + (qualifier.isEmpty() ? "" : " with qualifier '" + qualifier + "'");
+        if (candidates.length == 0) {
+            throw new BeansException("No qualifying bean of type " + description + " available");
+        }
+        String primary = null;
+        for (String candidate : candidates) {
+            if (getBeanDefinition(candidate).isPrimary()) {
+                if (primary != null) {
+                    throw new BeansException("More than one 'primary' bean found among candidates of type " + description + ": " + String.join(",", candidates));
+                }
+                primary = candidate;
+            }
+        }
+        if (primary == null) {
+            throw new BeansException("No qualifying bean of type " + description + " available: expected single matching bean but found "
+                    + candidates.length + ": " + String.join(",", candidates));
+        }
+        return primary;
     }
 
+    /**
+     * 冻结配置后的只读视图，创建后不再修改，读取时不需要加锁。
+     * 名称数组只在内部共享，对外返回时复制一份
+     */
+    private static final class ConfigurationSnapshot {
+        static final String[] NO_NAMES = new String[0];
+        final Map<String, BeanDefinition> beanDefinitions;
+        final String[] beanDefinitionNames;
+        final Map<Class<?>, String[]> beanNamesByType;
+
+        ConfigurationSnapshot(Map<String, BeanDefinition> beanDefinitionMap, Map<Class<?>, Set<String>> beanNamesByType) {
+            this.beanDefinitions = Collections.unmodifiableMap(new LinkedHashMap<>(beanDefinitionMap));
+            this.beanDefinitionNames = beanDefinitionMap.keySet().toArray(new String[0]);
+            Map<Class<?>, String[]> namesByType = new HashMap<>(beanNamesByType.size() * 2);
+            for (Map.Entry<Class<?>, Set<String>> entry : beanNamesByType.entrySet()) {
+                namesByType.put(entry.getKey(), entry.getValue().toArray(new String[0]));
+            }
+            this.beanNamesByType = Collections.unmodifiableMap(namesByType);
+        }
+    }
 }
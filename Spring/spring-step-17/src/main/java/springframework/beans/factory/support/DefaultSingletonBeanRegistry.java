@@ -1,48 +1,148 @@
 package springframework.beans.factory.support;
 
+import cn.hutool.core.bean.BeanException;
 import springframework.beans.factory.DisposeableBean;
 import springframework.beans.factory.ObjectFactory;
 import springframework.beans.factory.config.SingletonBeanRegistry;
 
-import javax.naming.Name;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 public abstract  class DefaultSingletonBeanRegistry implements SingletonBeanRegistry {
-    //一级缓存用来缓存普通对象
-    private Map<String,Object> singletonObjects=new ConcurrentHashMap<>();
+    //等待其他线程创建单例Bean时，每隔多久检查一次是否出现了跨线程的循环依赖
+    private static final long CREATION_LOCK_CHECK_MILLIS = 10;
+    //一级缓存用来缓存普通对象，发布后的单例只从这里无锁读取
+    private final Map<String,Object> singletonObjects=new ConcurrentHashMap<>();
     //二级缓存，提前暴露对象，没有完全实例化的对象
-    protected final Map<String,Object> earlySingletonObjects=new HashMap<>();
+    protected final Map<String,Object> earlySingletonObjects=new ConcurrentHashMap<>();
     //三级缓存，用来存储代理对象
-    private final Map <String, ObjectFactory<?>> singletonFacories=new HashMap<>();
+    private final Map <String, ObjectFactory<?>> singletonFacories=new ConcurrentHashMap<>();
+    //每个Bean名称一把创建锁，不同Bean可以并发创建，同一个Bean只会被创建一次
+    private final Map<String, ReentrantLock> singletonLocks=new ConcurrentHashMap<>();
+    //正在创建中的单例Bean以及创建它的线程
+    private final Map<String, Thread> singletonsCurrentlyInCreation=new ConcurrentHashMap<>();
+    //线程正在等待哪个单例Bean的创建锁，用来检测跨线程的循环依赖
+    private final Map<Thread, String> singletonsAwaited=new ConcurrentHashMap<>();
     //注册了销毁方法的Bean集合
-    private final Map<String, Object> disposableBeans = new LinkedHashMap<>();
+    private final Map<String, Object> disposableBeans = Collections.synchronizedMap(new LinkedHashMap<>());
 
     @Override
     public Object getSingleton(String Name) {
         Object sinletonObject=singletonObjects.get(Name);
-        if(null==sinletonObject){
-            sinletonObject=earlySingletonObjects.get(Name);
-            //判断三级缓存中是否有对象，如果有，则这个对象就是代理对象，因为只有代理对象才会存入三级缓存中
-            //三级缓存中
+        //只有正在创建该Bean的线程（即同一线程内的循环依赖）才能拿到提前暴露的对象，
+        //其他线程需要通过getSingleton(beanName, singletonFactory)等待创建完成
+        if(null==sinletonObject && singletonsCurrentlyInCreation.get(Name)==Thread.currentThread()){
+            sinletonObject=getEarlySingleton(Name);
+        }
+        return sinletonObject;
+    }
+
+    //从二级、三级缓存中获取提前暴露的对象
+    private Object getEarlySingleton(String beanName) {
+        Object sinletonObject=earlySingletonObjects.get(beanName);
+        if(null!=sinletonObject){
+            return sinletonObject;
+        }
+        //三级缓存升级到二级缓存必须是原子的，否则同一个Bean可能生成两个不同的代理对象
+        synchronized (this.earlySingletonObjects){
+            sinletonObject=earlySingletonObjects.get(beanName);
             if(null==sinletonObject){
-                ObjectFactory<?> singletonFactory=singletonFacories.get(Name);
-                if(singletonFactory==null){
+                ObjectFactory<?> singletonFactory=singletonFacories.get(beanName);
+                //判断三级缓存中是否有对象，如果有，则这个对象就是代理对象，因为只有代理对象才会存入三级缓存中
+                if(singletonFactory!=null){
                     sinletonObject=singletonFactory.getObject();
                     //获得三级缓存中代理对象的真实对象，将其存储在二级缓存中
-                    earlySingletonObjects.put(Name,sinletonObject);
-                    singletonFacories.remove(Name);
+                    earlySingletonObjects.put(beanName,sinletonObject);
+                    singletonFacories.remove(beanName);
                 }
             }
         }
         return sinletonObject;
     }
 
+    /**
+     * 获取单例Bean，不存在时在该Bean自己的创建锁内调用singletonFactory创建，保证只创建一次
+     */
+    public Object getSingleton(String beanName, ObjectFactory<?> singletonFactory) {
+        Object singletonObject=singletonObjects.get(beanName);
+        if(null!=singletonObject){
+            return singletonObject;
+        }
+        Thread currentThread=Thread.currentThread();
+        ReentrantLock lock=singletonLocks.computeIfAbsent(beanName, k -> new ReentrantLock());
+        if(!lock.tryLock()){
+            singletonsAwaited.put(currentThread,beanName);
+            try{
+                while (!lock.tryLock(CREATION_LOCK_CHECK_MILLIS, TimeUnit.MILLISECONDS)){
+                    //两个线程分别持有对方需要的创建锁时，使用提前暴露的对象打破循环
+                    if(isCreationCycle(beanName,currentThread)){
+                        Object earlySingleton=getEarlySingleton(beanName);
+                        //检测到环之后对方可能刚好创建完成，发布时先放一级缓存再清理提前暴露的对象，所以这里再查一次一级缓存
+                        if(null==earlySingleton){
+                            earlySingleton=singletonObjects.get(beanName);
+                        }
+                        if(null==earlySingleton){
+                            throw new BeanException("Unresolvable circular reference between threads for bean '"+beanName+"'");
+                        }
+                        return earlySingleton;
+                    }
+                }
+            }catch (InterruptedException e){
+                Thread.currentThread().interrupt();
+                throw new BeanException("Interrupted while waiting for singleton bean '"+beanName+"'", e);
+            }finally {
+                singletonsAwaited.remove(currentThread);
+            }
+        }
+        try{
+            singletonObject=singletonObjects.get(beanName);
+            if(null!=singletonObject){
+                return singletonObject;
+            }
+            //同一线程内的循环依赖，直接返回提前暴露的对象
+            if(singletonsCurrentlyInCreation.get(beanName)==currentThread){
+                return getEarlySingleton(beanName);
+            }
+            singletonsCurrentlyInCreation.put(beanName,currentThread);
+            try{
+                singletonObject=singletonFactory.getObject();
+                registerSinleton(beanName,singletonObject);
+                return singletonObject;
+            }finally {
+                singletonsCurrentlyInCreation.remove(beanName);
+            }
+        }finally {
+            lock.unlock();
+        }
+    }
+
+    //沿着“创建线程 -> 等待的Bean -> 该Bean的创建线程”查找，如果回到当前线程说明出现了跨线程循环依赖
+    private boolean isCreationCycle(String beanName, Thread currentThread) {
+        String awaitedBeanName=beanName;
+        for (int i = 0; i <= singletonsCurrentlyInCreation.size(); i++) {
+            Thread creator=singletonsCurrentlyInCreation.get(awaitedBeanName);
+            if(creator==null){
+                return false;
+            }
+            if(creator==currentThread){
+                return true;
+            }
+            awaitedBeanName=singletonsAwaited.get(creator);
+            if(awaitedBeanName==null){
+                return false;
+            }
+        }
+        return false;
+    }
+
 
     @Override
     public void registerSinleton(String beanName, Object singletonObject) {
+        //先发布到一级缓存，再清理二、三级缓存，保证无锁读取的线程总能拿到对象
         singletonObjects.put(beanName,singletonObject);
         earlySingletonObjects.remove(beanName);
         singletonFacories.remove(beanName);
@@ -69,10 +169,11 @@ public abstract  class DefaultSingletonBeanRegistry implements SingletonBeanRegi
 
     public void destroySingletons() throws Exception {
         String[] disposableBeanNames;
-        disposableBeanNames = (this.disposableBeans.keySet()).toArray(new String[0]);
+        synchronized (this.disposableBeans) {
+            disposableBeanNames = (this.disposableBeans.keySet()).toArray(new String[0]);
+        }
         for (int i = disposableBeanNames.length - 1; i >= 0; i--) {
             destroySingleton(disposableBeanNames[i]);
         }
     }
 }
-
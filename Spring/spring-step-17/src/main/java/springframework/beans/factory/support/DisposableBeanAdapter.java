@@ -5,17 +5,25 @@ import cn.hutool.core.util.StrUtil;
 import springframework.beans.factory.DisposeableBean;
 import springframework.beans.factory.config.BeanDefinition;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Method;
 
 public class DisposableBeanAdapter implements DisposeableBean {
     private final Object bean;
     private final String beanName;
     private String destroyMethodName;
+    //创建计划中已经解析好的销毁方法句柄，为空时在销毁时再反射查找
+    private final MethodHandle destroyMethod;
 
     public DisposableBeanAdapter(Object bean, String beanName, BeanDefinition beanDefinition) {
+        this(bean, beanName, beanDefinition, null);
+    }
+
+    public DisposableBeanAdapter(Object bean, String beanName, BeanDefinition beanDefinition, MethodHandle destroyMethod) {
         this.bean = bean;
         this.beanName = beanName;
         this.destroyMethodName = beanDefinition.getDestroyMethodName();
+        this.destroyMethod = destroyMethod;
     }
 
     @Override
@@ -27,6 +35,10 @@ public class DisposableBeanAdapter implements DisposeableBean {
         }
         //配置信息destroy-method
         if(StrUtil.isNotEmpty(destroyMethodName) && !(bean instanceof DisposeableBean && "destroy".equals(this.destroyMethodName))){
+            if(destroyMethod!=null){
+                BeanCreationPlan.invoke(destroyMethod,bean);
+                return;
+            }
             //放射获得用户配置文件中配置的方法
             Method destroyMethod=bean.getClass().getMethod(destroyMethodName);
             if(null==destroyMethod){
@@ -18,8 +18,16 @@ public abstract class FactoryBeanRegistrySupport extends DefaultSingletonBeanReg
         if(factory.isSingleton()){
             Object object=this.factoryBeanObjectCache.get(beanName);
             if(object==null){
-                object=doGetObjectFromFactoryBean(factory,beanName);
-                this.factoryBeanObjectCache.put(beanName,(object!=null?object:null));
+                //并发首次获取时只调用一次FactoryBean#getObject
+                synchronized (factory){
+                    object=this.factoryBeanObjectCache.get(beanName);
+                    if(object==null){
+                        object=doGetObjectFromFactoryBean(factory,beanName);
+                        if(object!=null){
+                            this.factoryBeanObjectCache.put(beanName,object);
+                        }
+                    }
+                }
             }
             return object;
         }else {
@@ -6,5 +6,5 @@ import springframework.beans.factory.config.BeanDefinition;
 import java.lang.reflect.Constructor;
 
 public interface InstantiationStrategy {
-    Object instatiate(BeanDefinition beanDefinition, String beanName , Constructor ctor, Object[] args) throws BeansException;
+    Object instatiate(BeanDefinition beanDefinition, String beanName , Constructor<?> ctor, Object[] args) throws BeansException;
 }
@@ -0,0 +1,61 @@
+package springframework.beans.factory.support;
+
+import springframework.BeansException;
+import springframework.beans.factory.config.BeanDefinition;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 直接调用构造函数的实例化策略：每个构造函数只转换一次MethodHandle并缓存，
+ * 创建出来的就是Bean类本身的对象，不会像CglibSubclassingInstantiationStrategy那样生成子类
+ */
+public class MethodHandleInstantiationStrategy implements InstantiationStrategy {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final Object[] NO_ARGS = new Object[0];
+
+    //构造函数对应的句柄，统一适配成(Object[])Object的形式
+    private final Map<Constructor<?>, MethodHandle> constructorHandles = new ConcurrentHashMap<>();
+
+    @Override
+    public Object instatiate(BeanDefinition beanDefinition, String beanName, Constructor<?> ctor, Object[] args) throws BeansException {
+        Class<?> clazz = beanDefinition.getBeanClass();
+        //传了构造参数却没有找到参数个数匹配的构造函数，不能悄悄退回无参构造
+        if (ctor == null && args != null && args.length > 0) {
+            throw new BeansException("No constructor of [" + clazz.getName() + "] takes " + args.length + " arguments for bean '" + beanName + "'");
+        }
+        try {
+            //构造函数为空则使用默认无参构造函数创建bean实例
+            Constructor<?> constructor = ctor != null ? ctor : clazz.getDeclaredConstructor();
+            MethodHandle handle = constructorHandles.get(constructor);
+            if (handle == null) {
+                handle = constructorHandles.computeIfAbsent(constructor, MethodHandleInstantiationStrategy::toHandle);
+            }
+            return handle.invokeExact(args != null ? args : NO_ARGS);
+        } catch (BeansException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new BeansException("Failed to instantiate  [" + clazz.getName() + "]", e);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new BeansException("Failed to instantiate  [" + clazz.getName() + "]", new RuntimeException(t));
+        }
+    }
+
+    private static MethodHandle toHandle(Constructor<?> constructor) {
+        try {
+            constructor.setAccessible(true);
+            int parameterCount = constructor.getParameterCount();
+            return LOOKUP.unreflectConstructor(constructor)
+                    .asType(MethodType.genericMethodType(parameterCount))
+                    .asSpreader(Object[].class, parameterCount);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Constructor " + constructor + " is not accessible", e);
+        }
+    }
+}
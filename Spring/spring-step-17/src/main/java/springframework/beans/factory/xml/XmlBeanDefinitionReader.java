@@ -98,6 +98,7 @@ public class XmlBeanDefinitionReader extends AbstractBeanDefinitionReader {
                 String init_method=beanElement.getAttribute("init-method");
                 String destroy_method=beanElement.getAttribute("destroy-method");
                 String beanScope= beanElement.getAttribute("scope");
+                String primary= beanElement.getAttribute("primary");
                 Class<?> clazz = Class.forName(className);
                 String beanName = id.isEmpty() ? name : id;
                 if (beanName.isEmpty()) {
@@ -109,6 +110,7 @@ public class XmlBeanDefinitionReader extends AbstractBeanDefinitionReader {
                 if(!beanScope.isEmpty()){
                     beanDefinition.setScope(beanScope);
                 }
+                beanDefinition.setPrimary(Boolean.parseBoolean(primary));
                 NodeList propertyNodes = beanElement.getElementsByTagName("property");
                 for (int j = 0; j < propertyNodes.getLength(); j++) {
                     Node propertyNode = propertyNodes.item(j);
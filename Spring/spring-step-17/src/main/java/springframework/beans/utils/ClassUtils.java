@@ -2,6 +2,9 @@ package springframework.beans.utils;
 
 import com.sun.istack.internal.Nullable;
 
+import java.util.LinkedHashSet;
+import java.util.Set;
+
 public abstract class ClassUtils {
     public static final String CGLIB_CLASS_SEPARATOR = "$$";
     public static ClassLoader getDefaultClassLoader() {
@@ -38,4 +41,22 @@ public abstract class ClassUtils {
     public static boolean isCglibProxyClassName(@Nullable String className) {
         return (className != null && className.contains(CGLIB_CLASS_SEPARATOR));
     }
+    //获取类本身、所有父类以及实现的所有接口（包括父接口），用于按类型建立索引
+    public static Set<Class<?>> getAllTypesForClass(Class<?> clazz) {
+        Set<Class<?>> types = new LinkedHashSet<>();
+        Class<?> current = clazz;
+        while (current != null) {
+            types.add(current);
+            collectInterfaces(current, types);
+            current = current.getSuperclass();
+        }
+        return types;
+    }
+    private static void collectInterfaces(Class<?> clazz, Set<Class<?>> types) {
+        for (Class<?> ifc : clazz.getInterfaces()) {
+            if (types.add(ifc)) {
+                collectInterfaces(ifc, types);
+            }
+        }
+    }
 }
@@ -1,2 +1,215 @@
+import org.junit.Assert;
+import org.junit.Test;
+import springframework.BeansException;
+import springframework.PropertyValue;
+import springframework.PropertyValues;
+import springframework.aop.aspectj.AspectJExpressionPointcutAdvisor;
+import springframework.aop.framework.autoproxy.DefaultAdvisorAutoProxyCreator;
+import springframework.beans.factory.config.BeanPostProcessor;
+import springframework.beans.factory.config.BeanDefinition;
+import springframework.beans.factory.config.BeanReference;
+import springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 多线程并发首次getBean时，循环依赖的单例Bean只创建一次，且互相持有的是同一个对象；
+ * 循环依赖中被自动代理的Bean提前创建代理，其他Bean注入的和容器发布的是同一个代理
+ */
 public class CircleTest {
+    private static final int THREADS = 16;
+    private static final int ROUNDS = 200;
+
+    public static class Husband {
+        static final AtomicInteger CREATED = new AtomicInteger();
+        private Wife wife;
+        public Husband() {
+            CREATED.incrementAndGet();
+        }
+        public Wife getWife() {
+            return wife;
+        }
+    }
+
+    public static class Wife {
+        static final AtomicInteger CREATED = new AtomicInteger();
+        private Husband husband;
+        private Wife self;
+        public Wife() {
+            CREATED.incrementAndGet();
+        }
+        public Husband getHusband() {
+            return husband;
+        }
+        public Wife getSelf() {
+            return self;
+        }
+    }
+
+    public interface Greeter {
+        String greet();
+    }
+
+    public static class AdvisedHusband implements Greeter {
+        private AdvisedWife wife;
+
+        @Override
+        public String greet() {
+            return "husband";
+        }
+
+        public AdvisedWife getWife() {
+            return wife;
+        }
+    }
+
+    public static class AdvisedWife {
+        private Greeter husband;
+
+        public Greeter getHusband() {
+            return husband;
+        }
+    }
+
+    public static class BracketInterceptor implements MethodInterceptor {
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            return "[" + invocation.proceed();
+        }
+    }
+
+    private DefaultListableBeanFactory createBeanFactory() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        PropertyValues husbandPvs = new PropertyValues();
+        husbandPvs.addPropertyValue(new PropertyValue("wife", new BeanReference("wife")));
+        beanFactory.registerBeanDefinition("husband", new BeanDefinition(Husband.class, husbandPvs));
+        PropertyValues wifePvs = new PropertyValues();
+        wifePvs.addPropertyValue(new PropertyValue("husband", new BeanReference("husband")));
+        wifePvs.addPropertyValue(new PropertyValue("self", new BeanReference("wife")));
+        beanFactory.registerBeanDefinition("wife", new BeanDefinition(Wife.class, wifePvs));
+        return beanFactory;
+    }
+
+    private DefaultListableBeanFactory createAdvisedBeanFactory() throws BeansException {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        PropertyValues husbandPvs = new PropertyValues();
+        husbandPvs.addPropertyValue(new PropertyValue("wife", new BeanReference("wife")));
+        beanFactory.registerBeanDefinition("husband", new BeanDefinition(AdvisedHusband.class, husbandPvs));
+        PropertyValues wifePvs = new PropertyValues();
+        wifePvs.addPropertyValue(new PropertyValue("husband", new BeanReference("husband")));
+        beanFactory.registerBeanDefinition("wife", new BeanDefinition(AdvisedWife.class, wifePvs));
+        beanFactory.registerBeanDefinition("bracketInterceptor", new BeanDefinition(BracketInterceptor.class));
+        PropertyValues advisorPvs = new PropertyValues();
+        advisorPvs.addPropertyValue(new PropertyValue("expression", "execution(String *.greet(..))"));
+        advisorPvs.addPropertyValue(new PropertyValue("advice", new BeanReference("bracketInterceptor")));
+        beanFactory.registerBeanDefinition("greetAdvisor", new BeanDefinition(AspectJExpressionPointcutAdvisor.class, advisorPvs));
+        DefaultAdvisorAutoProxyCreator creator = new DefaultAdvisorAutoProxyCreator();
+        creator.setBeanFactory(beanFactory);
+        beanFactory.addBeanPostProcessor(creator);
+        return beanFactory;
+    }
+
+    //从被代理的一方开始：它的提前引用就是代理，初始化完成后不会再代理一次
+    @Test
+    public void test_advisedBeanInCycle() throws Throwable {
+        for (String first : new String[]{"husband", "wife"}) {
+            DefaultListableBeanFactory beanFactory = createAdvisedBeanFactory();
+            beanFactory.getBean(first);
+            Greeter husband = (Greeter) beanFactory.getBean("husband");
+            AdvisedWife wife = (AdvisedWife) beanFactory.getBean("wife");
+            Assert.assertTrue(Proxy.isProxyClass(husband.getClass()));
+            Assert.assertSame(husband, wife.getHusband());
+            Assert.assertEquals("[husband", husband.greet());
+            Assert.assertEquals("[husband", wife.getHusband().greet());
+        }
+    }
+
+    //不支持提前引用的后置处理器在初始化后替换了已经注入给其他Bean的对象时报错，而不是发布两个不同的对象
+    @Test
+    public void test_wrappedAfterEarlyReferenceRejected() throws Throwable {
+        DefaultListableBeanFactory beanFactory = createBeanFactory();
+        beanFactory.addBeanPostProcessor(new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof Husband ? new Husband() : bean;
+            }
+        });
+        try {
+            beanFactory.getBean("husband");
+            Assert.fail();
+        } catch (RuntimeException expected) {
+        }
+    }
+
+    @Test
+    public void test_concurrentGetBean() throws Throwable {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                Husband.CREATED.set(0);
+                Wife.CREATED.set(0);
+                DefaultListableBeanFactory beanFactory = createBeanFactory();
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<Object>> futures = new ArrayList<>();
+                for (int i = 0; i < THREADS; i++) {
+                    //一半线程从husband开始，一半从wife开始，制造跨线程的循环依赖
+                    String beanName = i % 2 == 0 ? "husband" : "wife";
+                    futures.add(executor.submit((Callable<Object>) () -> {
+                        start.await();
+                        try {
+                            return beanFactory.getBean(beanName);
+                        } catch (BeansException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }));
+                }
+                start.countDown();
+                for (Future<Object> future : futures) {
+                    future.get();
+                }
+
+                Husband husband = (Husband) beanFactory.getBean("husband");
+                Wife wife = (Wife) beanFactory.getBean("wife");
+                Assert.assertEquals(1, Husband.CREATED.get());
+                Assert.assertEquals(1, Wife.CREATED.get());
+                for (int i = 0; i < THREADS; i++) {
+                    Assert.assertSame(i % 2 == 0 ? husband : wife, futures.get(i).get());
+                }
+                Assert.assertSame(wife, husband.getWife());
+                Assert.assertSame(husband, wife.getHusband());
+                Assert.assertSame(wife, wife.getSelf());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_parallelPreInstantiateSingletons() throws Throwable {
+        for (int round = 0; round < ROUNDS; round++) {
+            Husband.CREATED.set(0);
+            Wife.CREATED.set(0);
+            DefaultListableBeanFactory beanFactory = createBeanFactory();
+            beanFactory.setParallelPreInstantiation(true);
+            beanFactory.preInstantiateSingletons();
+
+            Husband husband = (Husband) beanFactory.getBean("husband");
+            Wife wife = (Wife) beanFactory.getBean("wife");
+            Assert.assertEquals(1, Husband.CREATED.get());
+            Assert.assertEquals(1, Wife.CREATED.get());
+            Assert.assertSame(wife, husband.getWife());
+            Assert.assertSame(husband, wife.getHusband());
+        }
+    }
 }
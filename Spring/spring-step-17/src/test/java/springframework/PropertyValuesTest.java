@@ -0,0 +1,82 @@
+package springframework;
+
+import org.junit.Assert;
+import org.junit.Test;
+import springframework.beans.factory.config.BeanDefinition;
+import springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+import springframework.beans.factory.support.DefaultListableBeanFactory;
+
+/**
+ * 写时复制的属性集合：副本之间互不影响，BeanPostProcessor叠加的属性只作用于本次实例化
+ */
+public class PropertyValuesTest {
+
+    public static class Item {
+        private String name;
+        private String extra;
+    }
+
+    @Test
+    public void test_copyIsIsolated() {
+        PropertyValues original = new PropertyValues();
+        original.addPropertyValue(new PropertyValue("name", "a"));
+        PropertyValue[] snapshot = original.getPropertyValues();
+
+        PropertyValues copy = new PropertyValues(original);
+        copy.addPropertyValue(new PropertyValue("name", "b"));
+        copy.addPropertyValue(new PropertyValue("extra", "e"));
+
+        Assert.assertEquals(1, original.getPropertyValues().length);
+        Assert.assertEquals("a", original.getPropertyValue("name").getValue());
+        Assert.assertNull(original.getPropertyValue("extra"));
+        Assert.assertEquals(2, copy.getPropertyValues().length);
+        Assert.assertEquals("b", copy.getPropertyValue("name").getValue());
+        //已经返回出去的数组不会被后续的写入修改
+        Assert.assertEquals(1, snapshot.length);
+        Assert.assertEquals("a", snapshot[0].getValue());
+    }
+
+    @Test
+    public void test_sameNameReplacesInPlace() {
+        PropertyValues propertyValues = new PropertyValues();
+        propertyValues.addPropertyValue(new PropertyValue("name", "a"));
+        propertyValues.addPropertyValue(new PropertyValue("extra", "e"));
+        propertyValues.addPropertyValue(new PropertyValue("name", "b"));
+        PropertyValue[] values = propertyValues.getPropertyValues();
+        Assert.assertEquals(2, values.length);
+        Assert.assertEquals("name", values[0].getName());
+        Assert.assertEquals("b", values[0].getValue());
+        Assert.assertSame(values, propertyValues.getPropertyValues());
+    }
+
+    @Test
+    public void test_postProcessedValuesDoNotLeakIntoDefinition() throws Throwable {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        PropertyValues propertyValues = new PropertyValues();
+        propertyValues.addPropertyValue(new PropertyValue("name", "definition"));
+        BeanDefinition beanDefinition = new BeanDefinition(Item.class, propertyValues);
+        beanDefinition.setScope("prototype");
+        beanFactory.registerBeanDefinition("item", beanDefinition);
+        beanFactory.addBeanPostProcessor(new InstantiationAwareBeanPostProcessor() {
+            @Override
+            public PropertyValues postProcessPropertyValues(PropertyValues pvs, Object bean, String beanName) {
+                PropertyValues overlay = new PropertyValues();
+                overlay.addPropertyValue(new PropertyValue("name", "overlay"));
+                overlay.addPropertyValue(new PropertyValue("extra", "e"));
+                return overlay;
+            }
+
+            @Override
+            public Object getEarlyBeanReference(Object bean, String beanName) {
+                return bean;
+            }
+        });
+        for (int i = 0; i < 5; i++) {
+            Item item = (Item) beanFactory.getBean("item");
+            Assert.assertEquals("overlay", item.name);
+            Assert.assertEquals("e", item.extra);
+        }
+        Assert.assertEquals(1, beanDefinition.getPropertyValues().getPropertyValues().length);
+        Assert.assertEquals("definition", beanDefinition.getPropertyValues().getPropertyValue("name").getValue());
+    }
+}
@@ -0,0 +1,197 @@
+package springframework.aop;
+
+import org.aopalliance.aop.Advice;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.junit.Assert;
+import org.junit.Test;
+import springframework.aop.framework.ProxyFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 拦截器链按方法缓存：每个方法只匹配一次，修改配置后缓存失效
+ */
+public class AdvisedSupportTest {
+    private static final int CALLS = 100;
+
+    public interface Greeting {
+        String greet(String name);
+
+        String farewell(String name);
+    }
+
+    public static class GreetingService implements Greeting {
+        @Override
+        public String greet(String name) {
+            return "hello " + name;
+        }
+
+        @Override
+        public String farewell(String name) {
+            return "bye " + name;
+        }
+    }
+
+    //只匹配greet方法，并记录匹配次数
+    static class CountingAdvisor implements PointcutAdvisor, Pointcut {
+        final AtomicInteger classMatches = new AtomicInteger();
+        final AtomicInteger methodMatches = new AtomicInteger();
+        final MethodInterceptor interceptor;
+
+        CountingAdvisor(String prefix) {
+            this.interceptor = invocation -> prefix + invocation.proceed();
+        }
+
+        @Override
+        public Pointcut getPointcut() {
+            return this;
+        }
+
+        @Override
+        public Advice getAdvice() {
+            return interceptor;
+        }
+
+        @Override
+        public ClassFilter getClassFilter() {
+            return clazz -> {
+                classMatches.incrementAndGet();
+                return true;
+            };
+        }
+
+        @Override
+        public MethodMatcher getMathodMatcher() {
+            return (method, targetClass) -> {
+                methodMatches.incrementAndGet();
+                return method.getName().equals("greet");
+            };
+        }
+    }
+
+    private static AdvisedSupport newAdvisedSupport(boolean proxyTargetClass) {
+        AdvisedSupport advisedSupport = new AdvisedSupport();
+        advisedSupport.setTargetSource(new TargetSource(new GreetingService()));
+        advisedSupport.setProxyTargetClass(proxyTargetClass);
+        return advisedSupport;
+    }
+
+    @Test
+    public void test_chainCachedPerMethod() throws Exception {
+        AdvisedSupport advisedSupport = newAdvisedSupport(false);
+        CountingAdvisor advisor = new CountingAdvisor("[");
+        advisedSupport.addAdvisor(advisor);
+        Method greet = Greeting.class.getMethod("greet", String.class);
+        Method farewell = Greeting.class.getMethod("farewell", String.class);
+
+        MethodInterceptor[] chain = advisedSupport.getInterceptors(greet, GreetingService.class);
+        Assert.assertEquals(1, chain.length);
+        Assert.assertSame(chain, advisedSupport.getInterceptors(greet, GreetingService.class));
+        //不匹配的方法缓存空链
+        MethodInterceptor[] empty = advisedSupport.getInterceptors(farewell, GreetingService.class);
+        Assert.assertEquals(0, empty.length);
+        Assert.assertSame(empty, advisedSupport.getInterceptors(farewell, GreetingService.class));
+        Assert.assertEquals(2, advisor.methodMatches.get());
+    }
+
+    @Test
+    public void test_jdkProxyMatchesOncePerMethod() {
+        assertMatchesOncePerMethod(false);
+    }
+
+    @Test
+    public void test_cglibProxyMatchesOncePerMethod() {
+        assertMatchesOncePerMethod(true);
+    }
+
+    private void assertMatchesOncePerMethod(boolean proxyTargetClass) {
+        AdvisedSupport advisedSupport = newAdvisedSupport(proxyTargetClass);
+        CountingAdvisor advisor = new CountingAdvisor("[");
+        advisedSupport.addAdvisor(advisor);
+        Greeting proxy = (Greeting) new ProxyFactory(advisedSupport).getProxy();
+        int classMatches = advisor.classMatches.get();
+        int methodMatches = advisor.methodMatches.get();
+        for (int i = 0; i < CALLS; i++) {
+            Assert.assertEquals("[hello world", proxy.greet("world"));
+            Assert.assertEquals("bye world", proxy.farewell("world"));
+        }
+        //第一次调用每个方法时匹配，之后都命中缓存
+        Assert.assertTrue(advisor.methodMatches.get() - methodMatches <= 2);
+        Assert.assertTrue(advisor.classMatches.get() - classMatches <= 2);
+    }
+
+    @Test
+    public void test_cacheInvalidatedOnConfigurationChange() throws Exception {
+        AdvisedSupport advisedSupport = newAdvisedSupport(false);
+        Method greet = Greeting.class.getMethod("greet", String.class);
+        Assert.assertEquals(0, advisedSupport.getInterceptors(greet, GreetingService.class).length);
+
+        advisedSupport.addAdvisor(new CountingAdvisor("["));
+        MethodInterceptor[] chain = advisedSupport.getInterceptors(greet, GreetingService.class);
+        Assert.assertEquals(1, chain.length);
+
+        MethodInterceptor interceptor = invocation -> invocation.proceed();
+        advisedSupport.setMethodInterceptor(interceptor);
+        MethodInterceptor[] withInterceptor = advisedSupport.getInterceptors(greet, GreetingService.class);
+        Assert.assertEquals(2, withInterceptor.length);
+        //单独设置的拦截器排在Advisor前面
+        Assert.assertSame(interceptor, withInterceptor[0]);
+
+        advisedSupport.setMethodMatcher((method, targetClass) -> false);
+        MethodInterceptor[] unmatched = advisedSupport.getInterceptors(greet, GreetingService.class);
+        Assert.assertEquals(1, unmatched.length);
+
+        advisedSupport.setTargetSource(new TargetSource(new GreetingService()));
+        Assert.assertNotSame(unmatched, advisedSupport.getInterceptors(greet, GreetingService.class));
+    }
+
+    //创建代理后再修改配置会抛出异常，不会出现部分方法生效、部分方法不生效的情况
+    @Test
+    public void test_configurationFrozenAfterProxyCreated() {
+        for (boolean proxyTargetClass : new boolean[]{false, true}) {
+            AdvisedSupport advisedSupport = newAdvisedSupport(proxyTargetClass);
+            advisedSupport.addAdvisor(new CountingAdvisor("["));
+            Greeting proxy = (Greeting) new ProxyFactory(advisedSupport).getProxy();
+            Assert.assertTrue(advisedSupport.isFrozen());
+            try {
+                advisedSupport.addAdvisor(new CountingAdvisor("<"));
+                Assert.fail();
+            } catch (IllegalStateException expected) {
+            }
+            try {
+                advisedSupport.setMethodInterceptor(invocation -> invocation.proceed());
+                Assert.fail();
+            } catch (IllegalStateException expected) {
+            }
+            try {
+                advisedSupport.setTargetSource(new TargetSource(new GreetingService()));
+                Assert.fail();
+            } catch (IllegalStateException expected) {
+            }
+            Assert.assertEquals("[hello world", proxy.greet("world"));
+            Assert.assertEquals("bye world", proxy.farewell("world"));
+        }
+    }
+
+    //MethodBeforeAdvice在添加Advisor时适配一次，所有方法的拦截器链共用同一个拦截器
+    @Test
+    public void test_beforeAdviceAdaptedOnce() throws Exception {
+        AdvisedSupport advisedSupport = newAdvisedSupport(false);
+        MethodBeforeAdvice advice = (method, args, target) -> {
+        };
+        advisedSupport.addAdvisor(() -> advice);
+        MethodInterceptor greet = advisedSupport.getInterceptors(Greeting.class.getMethod("greet", String.class), GreetingService.class)[0];
+        MethodInterceptor farewell = advisedSupport.getInterceptors(Greeting.class.getMethod("farewell", String.class), GreetingService.class)[0];
+        Assert.assertSame(greet, farewell);
+        //拦截器链缓存失效后重新组装，拦截器不会重新创建
+        advisedSupport.addAdvisor(new CountingAdvisor("["));
+        Assert.assertSame(greet, advisedSupport.getInterceptors(Greeting.class.getMethod("greet", String.class), GreetingService.class)[0]);
+        try {
+            advisedSupport.addAdvisor(() -> new Advice() {
+            });
+            Assert.fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package springframework.aop.aspectj;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 切点表达式：多个线程同时对不同的切点做首次匹配，结果和单线程一致
+ */
+public class AspectJExpressionPointcutTest {
+    private static final int THREADS = 8;
+    private static final String EXPRESSION = "execution(* springframework.aop.aspectj.AspectJExpressionPointcutTest.*Service.find*(..))";
+
+    public static class OrderService {
+        public String findOrder(String id) {
+            return id;
+        }
+
+        public void saveOrder(String id) {
+        }
+    }
+
+    public static class UserService {
+        public String findUser(String id) {
+            return id;
+        }
+
+        public void deleteUser(String id) {
+        }
+    }
+
+    public static class OrderRepository {
+        public String findOrder(String id) {
+            return id;
+        }
+    }
+
+    @Test
+    public void test_matches() throws Exception {
+        AspectJExpressionPointcut pointcut = new AspectJExpressionPointcut(EXPRESSION);
+        Assert.assertTrue(pointcut.matches(OrderService.class));
+        Assert.assertTrue(pointcut.matches(OrderService.class.getMethod("findOrder", String.class), OrderService.class));
+        Assert.assertFalse(pointcut.matches(OrderService.class.getMethod("saveOrder", String.class), OrderService.class));
+        Assert.assertFalse(pointcut.matches(OrderRepository.class.getMethod("findOrder", String.class), OrderRepository.class));
+    }
+
+    //每个线程使用新的切点，缓存为空，匹配都要经过共享的解析器
+    @Test
+    public void test_concurrentFirstMatch() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < THREADS * 20; i++) {
+                results.add(pool.submit((Callable<String>) () -> describe(new AspectJExpressionPointcut(EXPRESSION))));
+            }
+            String expected = describe(new AspectJExpressionPointcut(EXPRESSION));
+            Assert.assertEquals("true,true;true,false,false,true,false;", expected);
+            for (Future<String> result : results) {
+                Assert.assertEquals(expected, result.get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static String describe(AspectJExpressionPointcut pointcut) {
+        StringBuilder result = new StringBuilder();
+        for (Class<?> clazz : new Class<?>[]{OrderService.class, UserService.class}) {
+            result.append(pointcut.matches(clazz)).append(',');
+        }
+        result.setLength(result.length() - 1);
+        result.append(';');
+        for (Class<?> clazz : new Class<?>[]{OrderService.class, UserService.class, OrderRepository.class}) {
+            Method[] methods = clazz.getDeclaredMethods();
+            Arrays.sort(methods, Comparator.comparing(Method::getName));
+            for (Method method : methods) {
+                result.append(pointcut.matches(method, clazz)).append(',');
+            }
+        }
+        result.setLength(result.length() - 1);
+        return result.append(';').toString();
+    }
+}
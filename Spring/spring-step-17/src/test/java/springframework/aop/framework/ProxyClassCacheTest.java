@@ -0,0 +1,98 @@
+package springframework.aop.framework;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.junit.Assert;
+import org.junit.Test;
+import springframework.aop.AdvisedSupport;
+import springframework.aop.TargetSource;
+
+/**
+ * 代理类缓存：同一种代理只生成一次代理类，之后的代理对象用缓存的构造器创建，各自使用自己的回调和目标对象
+ */
+public class ProxyClassCacheTest {
+    private static final int PROXIES = 1000;
+
+    public interface Greeting {
+        String greet(String name);
+    }
+
+    public static class GreetingService implements Greeting {
+        @Override
+        public String greet(String name) {
+            return "hello " + name;
+        }
+    }
+
+    @Test
+    public void test_cglibProxyClassReused() {
+        assertProxyClassReused(true);
+    }
+
+    @Test
+    public void test_jdkProxyClassReused() {
+        assertProxyClassReused(false);
+    }
+
+    //模拟原型Bean：每次都是新的目标对象和AdvisedSupport，但代理类只生成一次
+    private void assertProxyClassReused(boolean proxyTargetClass) {
+        Greeting first = createProxy(proxyTargetClass, "[");
+        //第一次调用时CGLIB会为MethodProxy生成FastClass，不计入
+        Assert.assertEquals("[hello world", first.greet("world"));
+        long hits = ProxyClassCache.getHits();
+        long misses = ProxyClassCache.getMisses();
+        for (int i = 0; i < PROXIES; i++) {
+            Greeting proxy = createProxy(proxyTargetClass, "<" + i);
+            Assert.assertSame(first.getClass(), proxy.getClass());
+            Assert.assertEquals("<" + i + "hello world", proxy.greet("world"));
+        }
+        Assert.assertEquals("[hello world", first.greet("world"));
+        Assert.assertEquals(PROXIES, ProxyClassCache.getHits() - hits);
+        Assert.assertEquals(0, ProxyClassCache.getMisses() - misses);
+    }
+
+    //只在下面的测试中使用，保证第一次创建代理时缓存未命中
+    public static class UncachedGreetingService extends GreetingService implements Greeting {
+    }
+
+    public static class HiGreetingService extends UncachedGreetingService implements Greeting {
+        @Override
+        public String greet(String name) {
+            return "hi " + name;
+        }
+    }
+
+    //缓存只保存代理类的构造器：第一次未命中时生成代理类，之后命中缓存的代理对象使用自己的拦截器和目标对象，不会沿用第一个代理的
+    @Test
+    public void test_cachedConstructorDoesNotCarryFirstProxyState() {
+        for (boolean proxyTargetClass : new boolean[]{false, true}) {
+            long hits = ProxyClassCache.getHits();
+            long misses = ProxyClassCache.getMisses();
+            Greeting first = createProxy(proxyTargetClass, "[", new UncachedGreetingService());
+            Assert.assertEquals(1, ProxyClassCache.getMisses() - misses);
+            Assert.assertEquals(0, ProxyClassCache.getHits() - hits);
+
+            Greeting second = createProxy(proxyTargetClass, "<", new HiGreetingService());
+            Greeting third = createProxy(proxyTargetClass, "(", new UncachedGreetingService());
+            //子类是另一个目标类，缓存在它自己的类上
+            Assert.assertEquals(2, ProxyClassCache.getMisses() - misses);
+            Assert.assertEquals(1, ProxyClassCache.getHits() - hits);
+            Assert.assertSame(first.getClass(), third.getClass());
+            Assert.assertEquals("[hello world", first.greet("world"));
+            Assert.assertEquals("(hello world", third.greet("world"));
+            Assert.assertEquals("<hi world", second.greet("world"));
+        }
+    }
+
+    private Greeting createProxy(boolean proxyTargetClass, String prefix) {
+        return createProxy(proxyTargetClass, prefix, new GreetingService());
+    }
+
+    private Greeting createProxy(boolean proxyTargetClass, String prefix, GreetingService target) {
+        AdvisedSupport advisedSupport = new AdvisedSupport();
+        advisedSupport.setTargetSource(new TargetSource(target));
+        advisedSupport.setMethodMatcher((method, targetClass) -> method.getName().equals("greet"));
+        advisedSupport.setMethodInterceptor((MethodInterceptor) invocation -> prefix + invocation.proceed());
+        advisedSupport.setProxyTargetClass(proxyTargetClass);
+        return (Greeting) new ProxyFactory(advisedSupport).getProxy();
+    }
+}
@@ -0,0 +1,159 @@
+package springframework.aop.framework.autoproxy;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import springframework.PropertyValue;
+import springframework.PropertyValues;
+import springframework.aop.aspectj.AspectJExpressionPointcutAdvisor;
+import springframework.beans.factory.config.BeanDefinition;
+import springframework.beans.factory.config.BeanReference;
+import springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 自动代理：只有至少一个方法匹配的Bean才创建代理，所有适用的Advisor按order合并到一个代理上，新注册的Advisor让已有的匹配结果失效
+ */
+public class DefaultAdvisorAutoProxyCreatorTest {
+
+    public interface Greeting {
+        String greet(String name);
+    }
+
+    public static class GreetingService implements Greeting {
+        @Override
+        public String greet(String name) {
+            return "hello " + name;
+        }
+    }
+
+    public interface Counter {
+        int count();
+    }
+
+    public static class CounterService implements Counter {
+        @Override
+        public int count() {
+            return 1;
+        }
+    }
+
+    public static class PrefixInterceptor implements MethodInterceptor {
+        //所有拦截器收到的调用目标
+        static final List<Object> TARGETS = new ArrayList<>();
+        protected String prefix = "[";
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            TARGETS.add(invocation.getThis());
+            return prefix + invocation.proceed();
+        }
+    }
+
+    public static class AInterceptor extends PrefixInterceptor {
+        public AInterceptor() {
+            prefix = "a";
+        }
+    }
+
+    public static class BInterceptor extends PrefixInterceptor {
+        public BInterceptor() {
+            prefix = "b";
+        }
+    }
+
+    public static class CInterceptor extends PrefixInterceptor {
+        public CInterceptor() {
+            prefix = "c";
+        }
+    }
+
+    public static class DInterceptor extends PrefixInterceptor {
+        public DInterceptor() {
+            prefix = "d";
+        }
+    }
+
+    private DefaultListableBeanFactory beanFactory;
+    private DefaultAdvisorAutoProxyCreator creator;
+
+    @Before
+    public void setUp() throws Throwable {
+        beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("prefixInterceptor", new BeanDefinition(PrefixInterceptor.class));
+        creator = new DefaultAdvisorAutoProxyCreator();
+        creator.setBeanFactory(beanFactory);
+    }
+
+    private void registerAdvisor(String name, String expression) throws Throwable {
+        registerAdvisor(name, expression, "prefixInterceptor", null);
+    }
+
+    private void registerAdvisor(String name, String expression, String interceptorName, Integer order) throws Throwable {
+        PropertyValues propertyValues = new PropertyValues();
+        propertyValues.addPropertyValue(new PropertyValue("expression", expression));
+        propertyValues.addPropertyValue(new PropertyValue("advice", new BeanReference(interceptorName)));
+        if (order != null) {
+            propertyValues.addPropertyValue(new PropertyValue("order", order));
+        }
+        beanFactory.registerBeanDefinition(name, new BeanDefinition(AspectJExpressionPointcutAdvisor.class, propertyValues));
+    }
+
+    @Test
+    public void test_matchingBeanProxied() throws Throwable {
+        registerAdvisor("greetAdvisor", "execution(String *.greet(..))");
+        Object bean = creator.postProcessAfterInitialization(new GreetingService(), "greetingService");
+        Assert.assertTrue(Proxy.isProxyClass(bean.getClass()));
+        Assert.assertEquals("[hello world", ((Greeting) bean).greet("world"));
+    }
+
+    //类过滤器匹配（表达式对类型没有限制）但没有方法匹配时不创建代理
+    @Test
+    public void test_classMatchWithoutMethodMatchNotProxied() throws Throwable {
+        registerAdvisor("greetAdvisor", "execution(String *.greet(..))");
+        CounterService counter = new CounterService();
+        Assert.assertTrue(beanFactory.getBean("greetAdvisor", AspectJExpressionPointcutAdvisor.class)
+                .getPointcut().getClassFilter().matches(CounterService.class));
+        Assert.assertSame(counter, creator.postProcessAfterInitialization(counter, "counterService"));
+    }
+
+    @Test
+    public void test_newAdvisorInvalidatesEligibleAdvisors() throws Throwable {
+        registerAdvisor("greetAdvisor", "execution(String *.greet(..))");
+        CounterService counter = new CounterService();
+        Assert.assertSame(counter, creator.postProcessAfterInitialization(counter, "counterService"));
+
+        registerAdvisor("countAdvisor", "execution(int *.count(..))");
+        Object bean = creator.postProcessAfterInitialization(new CounterService(), "counterService");
+        Assert.assertTrue(Proxy.isProxyClass(bean.getClass()));
+    }
+
+    //多个Advisor合并到同一个代理上，按order排序，order相同时保持注册顺序，每个拦截器调用一次，拦截器收到的是原始目标对象
+    @Test
+    public void test_advisorsMergedIntoOneProxyByOrder() throws Throwable {
+        beanFactory.registerBeanDefinition("aInterceptor", new BeanDefinition(AInterceptor.class));
+        beanFactory.registerBeanDefinition("bInterceptor", new BeanDefinition(BInterceptor.class));
+        beanFactory.registerBeanDefinition("cInterceptor", new BeanDefinition(CInterceptor.class));
+        beanFactory.registerBeanDefinition("dInterceptor", new BeanDefinition(DInterceptor.class));
+        registerAdvisor("aAdvisor", "execution(* *.greet(..))", "aInterceptor", 2);
+        registerAdvisor("bAdvisor", "execution(String *.greet(..))", "bInterceptor", 1);
+        registerAdvisor("cAdvisor", "execution(* *.greet(..))", "cInterceptor", null);
+        registerAdvisor("dAdvisor", "execution(* *.greet(String))", "dInterceptor", 1);
+        registerAdvisor("countAdvisor", "execution(int *.count(..))", "prefixInterceptor", 0);
+
+        GreetingService target = new GreetingService();
+        Object bean = creator.postProcessAfterInitialization(target, "greetingService");
+        Assert.assertTrue(Proxy.isProxyClass(bean.getClass()));
+        PrefixInterceptor.TARGETS.clear();
+        Assert.assertEquals("bdachello world", ((Greeting) bean).greet("world"));
+        Assert.assertEquals(4, PrefixInterceptor.TARGETS.size());
+        for (Object invocationTarget : PrefixInterceptor.TARGETS) {
+            Assert.assertSame(target, invocationTarget);
+        }
+    }
+}
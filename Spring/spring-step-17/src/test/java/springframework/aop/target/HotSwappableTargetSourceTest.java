@@ -0,0 +1,133 @@
+package springframework.aop.target;
+
+import net.sf.cglib.proxy.Factory;
+import org.junit.Assert;
+import org.junit.Test;
+import springframework.aop.AdvisedSupport;
+import springframework.aop.framework.ProxyFactory;
+
+import java.lang.reflect.Proxy;
+
+/**
+ * 可替换目标对象的TargetSource：替换后JDK和CGLIB代理的新调用立即使用新对象，拦截器链不变，
+ * 正在进行的调用继续使用旧对象，替换为空或者类型不兼容的对象时抛出异常
+ */
+public class HotSwappableTargetSourceTest {
+
+    public interface Greeting {
+        String greet(String name);
+    }
+
+    public static class GreetingService implements Greeting {
+        private final String prefix;
+
+        public GreetingService() {
+            this("hello ");
+        }
+
+        public GreetingService(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public String greet(String name) {
+            return prefix + name;
+        }
+    }
+
+    //调用过程中替换目标对象，返回的仍是当前对象的结果
+    public static class SwappingGreetingService extends GreetingService {
+        private final HotSwappableTargetSource targetSource;
+        private final Object next;
+
+        public SwappingGreetingService(HotSwappableTargetSource targetSource, Object next) {
+            super("swapping ");
+            this.targetSource = targetSource;
+            this.next = next;
+        }
+
+        @Override
+        public String greet(String name) {
+            targetSource.swap(next);
+            return super.greet(name);
+        }
+    }
+
+    public static class OtherGreeting implements Greeting {
+        @Override
+        public String greet(String name) {
+            return "other " + name;
+        }
+    }
+
+    private static Greeting newProxy(HotSwappableTargetSource targetSource, boolean proxyTargetClass) {
+        AdvisedSupport advisedSupport = new AdvisedSupport();
+        advisedSupport.setTargetSource(targetSource);
+        advisedSupport.setProxyTargetClass(proxyTargetClass);
+        advisedSupport.setMethodInterceptor(invocation -> "[" + invocation.proceed());
+        return (Greeting) new ProxyFactory(advisedSupport).getProxy();
+    }
+
+    @Test
+    public void test_jdkProxySwap() {
+        assertSwap(false);
+    }
+
+    @Test
+    public void test_cglibProxySwap() {
+        assertSwap(true);
+    }
+
+    private void assertSwap(boolean proxyTargetClass) {
+        GreetingService initial = new GreetingService();
+        HotSwappableTargetSource targetSource = new HotSwappableTargetSource(initial);
+        Greeting proxy = newProxy(targetSource, proxyTargetClass);
+        Assert.assertEquals(proxyTargetClass, proxy instanceof Factory);
+        Assert.assertEquals(!proxyTargetClass, Proxy.isProxyClass(proxy.getClass()));
+        Assert.assertEquals("[hello world", proxy.greet("world"));
+
+        GreetingService hi = new GreetingService("hi ");
+        Assert.assertSame(initial, targetSource.swap(hi));
+        Assert.assertSame(hi, targetSource.getTarget());
+        Assert.assertEquals("[hi world", proxy.greet("world"));
+
+        //正在进行的调用使用开始时取到的对象，下一次调用才使用新对象
+        GreetingService next = new GreetingService("next ");
+        targetSource.swap(new SwappingGreetingService(targetSource, next));
+        Assert.assertEquals("[swapping world", proxy.greet("world"));
+        Assert.assertSame(next, targetSource.getTarget());
+        Assert.assertEquals("[next world", proxy.greet("world"));
+    }
+
+    //新对象必须是初始目标对象类型的实例，实现了同一个接口也不行
+    @Test
+    public void test_swapRejectsIncompatibleTarget() {
+        for (boolean proxyTargetClass : new boolean[]{false, true}) {
+            GreetingService initial = new GreetingService();
+            HotSwappableTargetSource targetSource = new HotSwappableTargetSource(initial);
+            Greeting proxy = newProxy(targetSource, proxyTargetClass);
+            try {
+                targetSource.swap(null);
+                Assert.fail();
+            } catch (IllegalArgumentException expected) {
+            }
+            try {
+                targetSource.swap(new OtherGreeting());
+                Assert.fail();
+            } catch (IllegalArgumentException expected) {
+            }
+            try {
+                targetSource.swap("hello");
+                Assert.fail();
+            } catch (IllegalArgumentException expected) {
+            }
+            Assert.assertSame(initial, targetSource.getTarget());
+            Assert.assertEquals("[hello world", proxy.greet("world"));
+        }
+        try {
+            new HotSwappableTargetSource(null);
+            Assert.fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package springframework.aop.target;
+
+import net.sf.cglib.proxy.Factory;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import springframework.PropertyValue;
+import springframework.PropertyValues;
+import springframework.aop.framework.ProxyFactoryBean;
+import springframework.beans.factory.DisposeableBean;
+import springframework.beans.factory.config.BeanDefinition;
+import springframework.beans.factory.config.BeanReference;
+import springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 对象池TargetSource：预创建minIdle个对象，超过maxIdle的空闲对象归还时销毁，池满时按maxWaitMillis超时，
+ * 代理（JDK和CGLIB）在每次调用结束后归还目标对象，目标方法抛出异常时也一样；关闭后归还的对象直接销毁，只接受借出中的对象
+ */
+public class PoolingTargetSourceTest {
+
+    public interface Parser {
+        int parse(String text);
+    }
+
+    public static class ParserImpl implements Parser, DisposeableBean {
+        static final AtomicInteger DESTROYED = new AtomicInteger();
+
+        @Override
+        public int parse(String text) {
+            if (text == null) {
+                throw new IllegalArgumentException("text is null");
+            }
+            return text.length();
+        }
+
+        @Override
+        public void destroy() {
+            DESTROYED.incrementAndGet();
+        }
+    }
+
+    private DefaultListableBeanFactory beanFactory;
+
+    @Before
+    public void setUp() {
+        ParserImpl.DESTROYED.set(0);
+        beanFactory = new DefaultListableBeanFactory();
+        BeanDefinition target = new BeanDefinition(ParserImpl.class);
+        target.setScope("prototype");
+        beanFactory.registerBeanDefinition("parserTarget", target);
+    }
+
+    private PoolingTargetSource registerPool(int maxSize, int minIdle, int maxIdle, long maxWaitMillis, boolean proxyTargetClass) throws Throwable {
+        PropertyValues poolValues = new PropertyValues();
+        poolValues.addPropertyValue(new PropertyValue("targetBeanName", "parserTarget"));
+        poolValues.addPropertyValue(new PropertyValue("maxSize", maxSize));
+        poolValues.addPropertyValue(new PropertyValue("minIdle", minIdle));
+        poolValues.addPropertyValue(new PropertyValue("maxIdle", maxIdle));
+        poolValues.addPropertyValue(new PropertyValue("maxWaitMillis", maxWaitMillis));
+        beanFactory.registerBeanDefinition("parserPool", new BeanDefinition(PoolingTargetSource.class, poolValues));
+        PropertyValues proxyValues = new PropertyValues();
+        proxyValues.addPropertyValue(new PropertyValue("targetSource", new BeanReference("parserPool")));
+        proxyValues.addPropertyValue(new PropertyValue("proxyTargetClass", proxyTargetClass));
+        beanFactory.registerBeanDefinition("parser", new BeanDefinition(ProxyFactoryBean.class, proxyValues));
+        return beanFactory.getBean("parserPool", PoolingTargetSource.class);
+    }
+
+    @Test
+    public void test_minIdlePrefilled() throws Throwable {
+        PoolingTargetSource pool = registerPool(4, 2, 4, -1, false);
+        Assert.assertEquals(2, pool.getIdleCount());
+        Assert.assertEquals(2, pool.getCreatedCount());
+        Assert.assertEquals(0, pool.getActiveCount());
+        //先借出预创建的对象
+        Object target = pool.getTarget();
+        Assert.assertEquals(2, pool.getCreatedCount());
+        Assert.assertEquals(1, pool.getIdleCount());
+        pool.releaseTarget(target);
+        Assert.assertEquals(2, pool.getIdleCount());
+    }
+
+    @Test
+    public void test_surplusBeyondMaxIdleDestroyed() throws Throwable {
+        PoolingTargetSource pool = registerPool(4, 0, 1, -1, false);
+        Object first = pool.getTarget();
+        Object second = pool.getTarget();
+        Object third = pool.getTarget();
+        Assert.assertEquals(3, pool.getActiveCount());
+        pool.releaseTarget(first);
+        pool.releaseTarget(second);
+        pool.releaseTarget(third);
+        Assert.assertEquals(0, pool.getActiveCount());
+        Assert.assertEquals(1, pool.getIdleCount());
+        Assert.assertEquals(2, pool.getDestroyedCount());
+        Assert.assertEquals(2, ParserImpl.DESTROYED.get());
+        //保留的是第一个归还的对象
+        Assert.assertSame(first, pool.getTarget());
+    }
+
+    @Test
+    public void test_borrowTimeout() throws Throwable {
+        PoolingTargetSource pool = registerPool(1, 0, 1, 50, false);
+        Parser parser = (Parser) beanFactory.getBean("parser");
+        Object held = pool.getTarget();
+        long start = System.nanoTime();
+        try {
+            parser.parse("abc");
+            Assert.fail();
+        } catch (IllegalStateException expected) {
+            Assert.assertTrue(expected.getMessage().startsWith("Timed out after 50ms"));
+        }
+        Assert.assertTrue(System.nanoTime() - start >= 40_000_000L);
+        Assert.assertEquals(1, pool.getWaitCount());
+        Assert.assertEquals(1, pool.getTimeoutCount());
+        //超时不占用许可，归还后可以继续借出
+        pool.releaseTarget(held);
+        Assert.assertEquals(3, parser.parse("abc"));
+        Assert.assertSame(held, pool.getTarget());
+    }
+
+    @Test
+    public void test_jdkProxyReleasesTarget() throws Throwable {
+        PoolingTargetSource pool = registerPool(1, 0, 1, 50, false);
+        Parser parser = (Parser) beanFactory.getBean("parser");
+        Assert.assertTrue(Proxy.isProxyClass(parser.getClass()));
+        assertReleasedAfterEachCall(pool, parser);
+    }
+
+    @Test
+    public void test_cglibProxyReleasesTarget() throws Throwable {
+        PoolingTargetSource pool = registerPool(1, 0, 1, 50, true);
+        Parser parser = (Parser) beanFactory.getBean("parser");
+        Assert.assertTrue(parser instanceof Factory);
+        Assert.assertTrue(parser instanceof ParserImpl);
+        assertReleasedAfterEachCall(pool, parser);
+    }
+
+    //池中只有一个对象，没有归还的话第二次调用会超时
+    private void assertReleasedAfterEachCall(PoolingTargetSource pool, Parser parser) {
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(3, parser.parse("abc"));
+            Assert.assertEquals(0, pool.getActiveCount());
+            Assert.assertEquals(1, pool.getIdleCount());
+            try {
+                parser.parse(null);
+                Assert.fail();
+            } catch (IllegalArgumentException expected) {
+            }
+            Assert.assertEquals(0, pool.getActiveCount());
+            Assert.assertEquals(1, pool.getIdleCount());
+        }
+        Assert.assertEquals(6, pool.getBorrowCount());
+        Assert.assertEquals(1, pool.getCreatedCount());
+        Assert.assertEquals(0, pool.getTimeoutCount());
+    }
+
+    //按名称和类型取FactoryBean时得到的是它创建的代理，而不是FactoryBean本身
+    @Test
+    public void test_typedGetBeanReturnsProxy() throws Throwable {
+        registerPool(1, 0, 1, 50, false);
+        Object parser = beanFactory.getBean("parser", Object.class);
+        Assert.assertFalse(parser instanceof ProxyFactoryBean);
+        Assert.assertSame(beanFactory.getBean("parser"), parser);
+        Assert.assertSame(parser, beanFactory.getBean("parser", Parser.class));
+    }
+
+    //关闭后空闲对象立即销毁，借出中的对象归还时销毁，之后不能再借出
+    @Test
+    public void test_destroy() throws Throwable {
+        PoolingTargetSource pool = registerPool(2, 1, 2, 50, false);
+        Object held = pool.getTarget();
+        Object idle = pool.getTarget();
+        pool.releaseTarget(idle);
+        pool.destroy();
+        Assert.assertEquals(0, pool.getIdleCount());
+        Assert.assertEquals(1, ParserImpl.DESTROYED.get());
+        pool.releaseTarget(held);
+        Assert.assertEquals(2, ParserImpl.DESTROYED.get());
+        Assert.assertEquals(0, pool.getIdleCount());
+        Assert.assertEquals(0, pool.getActiveCount());
+        Assert.assertEquals(2, pool.getDestroyedCount());
+        try {
+            pool.getTarget();
+            Assert.fail();
+        } catch (IllegalStateException expected) {
+            Assert.assertTrue(expected.getMessage().endsWith("is closed"));
+        }
+    }
+
+    //重复归还和归还不是从本池借出的对象被拒绝，不会多释放许可
+    @Test
+    public void test_releaseOnlyBorrowedObjects() throws Throwable {
+        PoolingTargetSource pool = registerPool(1, 0, 1, 50, false);
+        Object target = pool.getTarget();
+        pool.releaseTarget(target);
+        try {
+            pool.releaseTarget(target);
+            Assert.fail();
+        } catch (IllegalStateException expected) {
+        }
+        try {
+            pool.releaseTarget(new ParserImpl());
+            Assert.fail();
+        } catch (IllegalStateException expected) {
+        }
+        Assert.assertEquals(0, pool.getActiveCount());
+        Assert.assertEquals(1, pool.getIdleCount());
+        //仍然最多只能同时借出maxSize个对象
+        Object held = pool.getTarget();
+        try {
+            pool.getTarget();
+            Assert.fail();
+        } catch (IllegalStateException expected) {
+            Assert.assertTrue(expected.getMessage().startsWith("Timed out"));
+        }
+        pool.releaseTarget(held);
+    }
+}
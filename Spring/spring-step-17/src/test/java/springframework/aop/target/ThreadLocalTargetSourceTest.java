@@ -0,0 +1,131 @@
+package springframework.aop.target;
+
+import net.sf.cglib.proxy.Factory;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import springframework.PropertyValue;
+import springframework.PropertyValues;
+import springframework.aop.framework.ProxyFactoryBean;
+import springframework.beans.factory.DisposeableBean;
+import springframework.beans.factory.config.BeanDefinition;
+import springframework.beans.factory.config.BeanReference;
+import springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 线程本地TargetSource：同一个线程复用一个实例，不同线程使用不同实例，关闭时销毁所有实例，关闭后的调用被拒绝
+ */
+public class ThreadLocalTargetSourceTest {
+
+    public interface Formatter {
+        Formatter self();
+    }
+
+    public static class FormatterImpl implements Formatter, DisposeableBean {
+        static final AtomicInteger DESTROYED = new AtomicInteger();
+
+        @Override
+        public Formatter self() {
+            return this;
+        }
+
+        @Override
+        public void destroy() {
+            DESTROYED.incrementAndGet();
+        }
+    }
+
+    private DefaultListableBeanFactory beanFactory;
+
+    @Before
+    public void setUp() {
+        FormatterImpl.DESTROYED.set(0);
+        beanFactory = new DefaultListableBeanFactory();
+        BeanDefinition target = new BeanDefinition(FormatterImpl.class);
+        target.setScope("prototype");
+        beanFactory.registerBeanDefinition("formatterTarget", target);
+    }
+
+    private ThreadLocalTargetSource registerTargetSource(boolean proxyTargetClass) throws Throwable {
+        PropertyValues targetSourceValues = new PropertyValues();
+        targetSourceValues.addPropertyValue(new PropertyValue("targetBeanName", "formatterTarget"));
+        beanFactory.registerBeanDefinition("formatterTargetSource", new BeanDefinition(ThreadLocalTargetSource.class, targetSourceValues));
+        PropertyValues proxyValues = new PropertyValues();
+        proxyValues.addPropertyValue(new PropertyValue("targetSource", new BeanReference("formatterTargetSource")));
+        proxyValues.addPropertyValue(new PropertyValue("proxyTargetClass", proxyTargetClass));
+        beanFactory.registerBeanDefinition("formatter", new BeanDefinition(ProxyFactoryBean.class, proxyValues));
+        return beanFactory.getBean("formatterTargetSource", ThreadLocalTargetSource.class);
+    }
+
+    @Test
+    public void test_jdkProxyTargetPerThread() throws Throwable {
+        ThreadLocalTargetSource targetSource = registerTargetSource(false);
+        Formatter formatter = (Formatter) beanFactory.getBean("formatter");
+        Assert.assertTrue(Proxy.isProxyClass(formatter.getClass()));
+        assertTargetPerThread(targetSource, formatter);
+    }
+
+    @Test
+    public void test_cglibProxyTargetPerThread() throws Throwable {
+        ThreadLocalTargetSource targetSource = registerTargetSource(true);
+        Formatter formatter = (Formatter) beanFactory.getBean("formatter");
+        Assert.assertTrue(formatter instanceof Factory);
+        assertTargetPerThread(targetSource, formatter);
+    }
+
+    private void assertTargetPerThread(ThreadLocalTargetSource targetSource, Formatter formatter) throws Throwable {
+        Formatter mine = formatter.self();
+        Assert.assertSame(mine, formatter.self());
+        AtomicReference<Formatter> other = new AtomicReference<>();
+        Thread thread = new Thread(() -> {
+            Formatter first = formatter.self();
+            if (first == formatter.self()) {
+                other.set(first);
+            }
+        });
+        thread.start();
+        thread.join();
+        Assert.assertNotNull(other.get());
+        Assert.assertNotSame(mine, other.get());
+        Assert.assertTrue(mine instanceof FormatterImpl);
+        Assert.assertEquals(2, targetSource.getObjectCount());
+        Assert.assertEquals(4, targetSource.getInvocationCount());
+        Assert.assertEquals(2, targetSource.getHitCount());
+    }
+
+    //关闭时销毁所有线程创建的实例，之后的调用抛出异常，不会再创建新实例
+    @Test
+    public void test_rejectedAfterDestroy() throws Throwable {
+        for (boolean proxyTargetClass : new boolean[]{false, true}) {
+            setUp();
+            ThreadLocalTargetSource targetSource = registerTargetSource(proxyTargetClass);
+            Formatter formatter = (Formatter) beanFactory.getBean("formatter");
+            formatter.self();
+            Thread thread = new Thread(formatter::self);
+            thread.start();
+            thread.join();
+            Assert.assertEquals(2, targetSource.getObjectCount());
+
+            targetSource.destroy();
+            Assert.assertEquals(0, targetSource.getObjectCount());
+            Assert.assertEquals(2, FormatterImpl.DESTROYED.get());
+            try {
+                formatter.self();
+                Assert.fail();
+            } catch (IllegalStateException expected) {
+                Assert.assertTrue(expected.getMessage().endsWith("is closed"));
+            }
+            try {
+                targetSource.getTarget();
+                Assert.fail();
+            } catch (IllegalStateException expected) {
+            }
+            Assert.assertEquals(0, targetSource.getObjectCount());
+            Assert.assertEquals(2, FormatterImpl.DESTROYED.get());
+        }
+    }
+}
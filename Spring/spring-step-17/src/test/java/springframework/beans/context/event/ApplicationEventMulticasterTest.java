@@ -0,0 +1,145 @@
+package springframework.beans.context.event;
+
+import net.sf.cglib.proxy.Enhancer;
+import net.sf.cglib.proxy.NoOp;
+import org.junit.Assert;
+import org.junit.Test;
+import springframework.beans.context.ApplicationEvent;
+import springframework.beans.context.ApplicationListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 监听器缓存和事件类型解析：添加、移除监听器后缓存失效，监听的事件类型从泛型参数中解析
+ */
+public class ApplicationEventMulticasterTest {
+
+    public static class OrderEvent extends ApplicationEvent {
+        public OrderEvent(Object source) {
+            super(source);
+        }
+    }
+
+    public static class OrderPaidEvent extends OrderEvent {
+        public OrderPaidEvent(Object source) {
+            super(source);
+        }
+    }
+
+    public static class UserEvent extends ApplicationEvent {
+        public UserEvent(Object source) {
+            super(source);
+        }
+    }
+
+    public static class RecordingListener<E extends ApplicationEvent> implements ApplicationListener<E> {
+        final List<Object> received = new ArrayList<>();
+
+        @Override
+        public void onApplicationEvent(E event) {
+            received.add(event.getSource());
+        }
+    }
+
+    public static class OrderListener extends RecordingListener<OrderEvent> {
+    }
+
+    //事件类型在父接口的泛型参数上
+    public interface OrderPaidListener extends ApplicationListener<OrderPaidEvent> {
+    }
+
+    public static class PaymentListener extends RecordingListener<OrderPaidEvent> implements OrderPaidListener {
+    }
+
+    public static class UserListener implements Comparable<UserListener>, ApplicationListener<UserEvent> {
+        final List<Object> received = new ArrayList<>();
+
+        @Override
+        public int compareTo(UserListener other) {
+            return 0;
+        }
+
+        @Override
+        public void onApplicationEvent(UserEvent event) {
+            received.add(event.getSource());
+        }
+    }
+
+    private final SimpleApplicationEventMulticaster multicaster = new SimpleApplicationEventMulticaster();
+
+    @Test
+    public void test_resolveEventType() {
+        Assert.assertEquals(OrderEvent.class, multicaster.resolveEventType(new OrderListener()));
+        Assert.assertEquals(OrderPaidEvent.class, multicaster.resolveEventType(new PaymentListener()));
+        Assert.assertEquals(UserEvent.class, multicaster.resolveEventType(new UserListener()));
+        //CGLIB子类按目标类解析
+        Enhancer enhancer = new Enhancer();
+        enhancer.setSuperclass(OrderListener.class);
+        enhancer.setCallback(NoOp.INSTANCE);
+        Assert.assertEquals(OrderEvent.class, multicaster.resolveEventType((OrderListener) enhancer.create()));
+        //无法确定泛型参数时监听所有事件
+        Assert.assertEquals(ApplicationEvent.class, multicaster.resolveEventType(new RecordingListener<UserEvent>()));
+        Assert.assertEquals(ApplicationEvent.class, multicaster.resolveEventType((ApplicationListener<UserEvent>) event -> {
+        }));
+    }
+
+    @Test
+    public void test_listenersFilteredByEventType() {
+        OrderListener orderListener = new OrderListener();
+        PaymentListener paymentListener = new PaymentListener();
+        UserListener userListener = new UserListener();
+        multicaster.addApplicationListener(orderListener);
+        multicaster.addApplicationListener(paymentListener);
+        multicaster.addApplicationListener(userListener);
+        multicaster.multicastEvent(new OrderEvent("order"));
+        multicaster.multicastEvent(new OrderPaidEvent("paid"));
+        multicaster.multicastEvent(new UserEvent("user"));
+        Assert.assertEquals(Arrays.asList("order", "paid"), orderListener.received);
+        Assert.assertEquals(Arrays.asList("paid"), paymentListener.received);
+        Assert.assertEquals(Arrays.asList("user"), userListener.received);
+    }
+
+    @Test
+    public void test_genericApplicationListener() {
+        List<Object> received = new ArrayList<>();
+        multicaster.addApplicationListener(new GenericApplicationListener<ApplicationEvent>() {
+            @Override
+            public boolean supportsEventType(Class<?> eventType) {
+                return eventType == UserEvent.class;
+            }
+
+            @Override
+            public void onApplicationEvent(ApplicationEvent event) {
+                received.add(event.getSource());
+            }
+        });
+        multicaster.multicastEvent(new OrderEvent("order"));
+        multicaster.multicastEvent(new UserEvent("user"));
+        Assert.assertEquals(Arrays.asList("user"), received);
+    }
+
+    @Test
+    public void test_cacheInvalidatedOnAddAndRemove() {
+        OrderListener first = new OrderListener();
+        multicaster.addApplicationListener(first);
+        multicaster.multicastEvent(new OrderEvent(1));
+        //OrderEvent的监听器数组已经缓存，之后添加的监听器也要收到事件
+        OrderListener second = new OrderListener();
+        multicaster.addApplicationListener(second);
+        multicaster.multicastEvent(new OrderEvent(2));
+        Assert.assertEquals(2, multicaster.getApplicationListeners(new OrderEvent(0)).length);
+
+        multicaster.removeApplicationListener(first);
+        multicaster.multicastEvent(new OrderEvent(3));
+        Assert.assertEquals(Arrays.asList(1, 2), first.received);
+        Assert.assertEquals(Arrays.asList(2, 3), second.received);
+        Assert.assertEquals(1, multicaster.getApplicationListeners(new OrderEvent(0)).length);
+
+        //移除不存在的监听器不影响已有的缓存
+        ApplicationListener<?>[] cached = multicaster.getApplicationListeners(new OrderEvent(0));
+        multicaster.removeApplicationListener(new UserListener());
+        Assert.assertSame(cached, multicaster.getApplicationListeners(new OrderEvent(0)));
+    }
+}
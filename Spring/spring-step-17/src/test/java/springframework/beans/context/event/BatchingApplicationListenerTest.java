@@ -0,0 +1,145 @@
+package springframework.beans.context.event;
+
+import org.junit.Assert;
+import org.junit.Test;
+import springframework.beans.context.ApplicationEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量投递：按时间窗口、数量窗口截取批次，按key合并，destroy之后在发布线程上直接投递
+ */
+public class BatchingApplicationListenerTest {
+
+    public static class ChangeEvent extends ApplicationEvent {
+        final String key;
+        final int sequence;
+
+        public ChangeEvent(String key, int sequence) {
+            super("test");
+            this.key = key;
+            this.sequence = sequence;
+        }
+    }
+
+    public static class OtherEvent extends ApplicationEvent {
+        public OtherEvent() {
+            super("test");
+        }
+    }
+
+    private static List<Integer> sequences(List<ChangeEvent> batch) {
+        List<Integer> sequences = new ArrayList<>();
+        for (ChangeEvent event : batch) {
+            sequences.add(event.sequence);
+        }
+        return sequences;
+    }
+
+    @Test
+    public void test_countWindow() throws Exception {
+        List<List<ChangeEvent>> batches = new CopyOnWriteArrayList<>();
+        BatchingApplicationListener<ChangeEvent> listener = new BatchingApplicationListener<>(ChangeEvent.class, batches::add);
+        listener.setWindowMillis(0);
+        listener.setMaxBatchSize(10);
+        for (int i = 0; i < 25; i++) {
+            listener.onApplicationEvent(new ChangeEvent("a", i));
+        }
+        //剩下的5个事件在destroy时投递
+        listener.destroy();
+        Assert.assertEquals(3, batches.size());
+        Assert.assertEquals(10, batches.get(0).size());
+        Assert.assertEquals(10, batches.get(1).size());
+        Assert.assertEquals(5, batches.get(2).size());
+        Assert.assertEquals(20, (int) batches.get(2).get(0).sequence);
+    }
+
+    @Test
+    public void test_timeWindowCoalescesByKey() throws Exception {
+        List<List<ChangeEvent>> batches = new CopyOnWriteArrayList<>();
+        CountDownLatch delivered = new CountDownLatch(1);
+        BatchingApplicationListener<ChangeEvent> listener = new BatchingApplicationListener<>(ChangeEvent.class, batch -> {
+            batches.add(batch);
+            delivered.countDown();
+        });
+        listener.setWindowMillis(200);
+        listener.setKeyExtractor(event -> event.key);
+        SimpleApplicationEventMulticaster multicaster = new SimpleApplicationEventMulticaster();
+        multicaster.addApplicationListener(listener);
+        for (int i = 0; i < 1000; i++) {
+            multicaster.multicastEvent(new ChangeEvent(i % 2 == 0 ? "a" : "b", i));
+        }
+        multicaster.multicastEvent(new OtherEvent());
+        Assert.assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        listener.destroy();
+        Assert.assertEquals(1, batches.size());
+        Assert.assertEquals(998, batches.get(0).get(0).sequence);
+        Assert.assertEquals(999, batches.get(0).get(1).sequence);
+        Assert.assertEquals(2, batches.get(0).size());
+    }
+
+    //投递不使用目标监听器作为锁，目标监听器自己持有锁时不会互相阻塞
+    @Test
+    public void test_deliveryDoesNotLockDelegate() throws Exception {
+        CountDownLatch delivered = new CountDownLatch(1);
+        BatchingApplicationListener.BatchListener<ChangeEvent> delegate = batch -> delivered.countDown();
+        BatchingApplicationListener<ChangeEvent> listener = new BatchingApplicationListener<>(ChangeEvent.class, delegate);
+        listener.setWindowMillis(0);
+        listener.setMaxBatchSize(1);
+        synchronized (delegate) {
+            listener.onApplicationEvent(new ChangeEvent("a", 0));
+            Assert.assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        }
+        listener.destroy();
+    }
+
+    @Test
+    public void test_destroyFlushesAndDeliversLaterEventsSynchronously() throws Exception {
+        List<List<ChangeEvent>> batches = new CopyOnWriteArrayList<>();
+        List<Thread> threads = new CopyOnWriteArrayList<>();
+        BatchingApplicationListener<ChangeEvent> listener = new BatchingApplicationListener<>(ChangeEvent.class, batch -> {
+            batches.add(batch);
+            threads.add(Thread.currentThread());
+        });
+        listener.setWindowMillis(60_000);
+        listener.onApplicationEvent(new ChangeEvent("a", 0));
+        listener.onApplicationEvent(new ChangeEvent("a", 1));
+        long start = System.nanoTime();
+        listener.destroy();
+        //destroy自己投递剩余的事件，不等时间窗口到期
+        Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        Assert.assertEquals(1, batches.size());
+        Assert.assertEquals(2, batches.get(0).size());
+        Assert.assertSame(Thread.currentThread(), threads.get(0));
+
+        //destroy之后不会再创建投递线程，事件在当前线程上投递
+        listener.onApplicationEvent(new ChangeEvent("a", 2));
+        listener.onApplicationEvent(new ChangeEvent("a", 3));
+        Assert.assertEquals(3, batches.size());
+        Assert.assertEquals(3, (int) sequences(batches.get(2)).get(0));
+        Assert.assertSame(Thread.currentThread(), threads.get(2));
+        listener.destroy();
+    }
+
+    @Test
+    public void test_errorHandler() throws Exception {
+        List<Throwable> errors = new CopyOnWriteArrayList<>();
+        List<List<ChangeEvent>> batches = new CopyOnWriteArrayList<>();
+        BatchingApplicationListener<ChangeEvent> listener = new BatchingApplicationListener<>(ChangeEvent.class, batch -> {
+            if (batch.get(0).sequence == 0) throw new IllegalStateException("failed");
+            batches.add(batch);
+        });
+        listener.setWindowMillis(0);
+        listener.setMaxBatchSize(1);
+        listener.setErrorHandler(errors::add);
+        listener.onApplicationEvent(new ChangeEvent("a", 0));
+        listener.onApplicationEvent(new ChangeEvent("a", 1));
+        listener.destroy();
+        Assert.assertEquals(1, errors.size());
+        Assert.assertEquals(1, batches.size());
+    }
+}
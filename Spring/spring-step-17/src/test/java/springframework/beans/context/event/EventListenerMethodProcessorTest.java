@@ -0,0 +1,187 @@
+package springframework.beans.context.event;
+
+import org.junit.Assert;
+import org.junit.Test;
+import springframework.beans.context.ApplicationEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @EventListener方法：按条件方法过滤事件，按声明的事件类型分发，公共方法和非公共方法的调用结果一致
+ */
+public class EventListenerMethodProcessorTest {
+
+    public static class OrderEvent extends ApplicationEvent {
+        final int amount;
+
+        public OrderEvent(int amount) {
+            super("order");
+            this.amount = amount;
+        }
+    }
+
+    public static class OrderPaidEvent extends OrderEvent {
+        public OrderPaidEvent(int amount) {
+            super(amount);
+        }
+    }
+
+    public static class OrderCancelledEvent extends OrderEvent {
+        public OrderCancelledEvent(int amount) {
+            super(amount);
+        }
+    }
+
+    public static class OrderService {
+        final List<Integer> received = new ArrayList<>();
+
+        @EventListener(condition = "isLarge")
+        public void onOrder(OrderEvent event) {
+            received.add(event.amount);
+        }
+
+        public boolean isLarge(OrderEvent event) {
+            return event.amount >= 100;
+        }
+    }
+
+    //条件方法在父类上，参数类型是事件类型的父类
+    public static class BaseAuditService {
+        final List<Object> received = new ArrayList<>();
+
+        public boolean isOrder(ApplicationEvent event) {
+            return event instanceof OrderEvent;
+        }
+    }
+
+    public static class AuditService extends BaseAuditService {
+        @EventListener(condition = "isOrder")
+        public void onEvent(ApplicationEvent event) {
+            received.add(event.getClass());
+        }
+    }
+
+    //非公共类，调用器和条件退化为MethodHandle
+    static class HiddenService {
+        final List<Integer> received = new ArrayList<>();
+
+        @EventListener(condition = "accept")
+        void onOrder(OrderEvent event) {
+            received.add(event.amount);
+        }
+
+        private boolean accept(OrderEvent event) {
+            return event.amount % 2 == 0;
+        }
+    }
+
+    public static class PaidOrCancelledService {
+        final List<Object> received = new ArrayList<>();
+
+        @EventListener(value = {OrderPaidEvent.class, OrderCancelledEvent.class}, condition = "isLarge")
+        public void onOrder(OrderEvent event) {
+            received.add(event.getClass());
+        }
+
+        public boolean isLarge(OrderEvent event) {
+            return event.amount >= 100;
+        }
+    }
+
+    public static class OverridingService extends OrderService {
+        @Override
+        @EventListener
+        public void onOrder(OrderEvent event) {
+            received.add(-event.amount);
+        }
+    }
+
+    public static class MissingConditionService {
+        @EventListener(condition = "missing")
+        public void onOrder(OrderEvent event) {
+        }
+    }
+
+    //条件方法的返回值必须是boolean
+    public static class WrongConditionService {
+        @EventListener(condition = "check")
+        public void onOrder(OrderEvent event) {
+        }
+
+        public Boolean check(OrderEvent event) {
+            return true;
+        }
+    }
+
+    private final EventListenerMethodProcessor processor = new EventListenerMethodProcessor();
+    private final SimpleApplicationEventMulticaster multicaster = new SimpleApplicationEventMulticaster();
+
+    private void publish(int... amounts) {
+        for (int amount : amounts) {
+            multicaster.multicastEvent(new OrderEvent(amount));
+        }
+    }
+
+    @Test
+    public void test_conditionFiltersEvents() {
+        OrderService service = new OrderService();
+        Assert.assertEquals(1, processor.processBean("orderService", service, multicaster));
+        publish(50, 100, 99, 200);
+        Assert.assertEquals(Arrays.asList(100, 200), service.received);
+    }
+
+    @Test
+    public void test_conditionOnSuperclassWithWiderParameter() {
+        AuditService service = new AuditService();
+        processor.processBean("auditService", service, multicaster);
+        multicaster.multicastEvent(new OrderPaidEvent(1));
+        multicaster.multicastEvent(new ApplicationEvent("other") {
+        });
+        Assert.assertEquals(Arrays.asList(OrderPaidEvent.class), service.received);
+    }
+
+    @Test
+    public void test_nonPublicConditionAndListener() {
+        HiddenService service = new HiddenService();
+        processor.processBean("hiddenService", service, multicaster);
+        publish(1, 2, 3, 4);
+        Assert.assertEquals(Arrays.asList(2, 4), service.received);
+    }
+
+    //声明的事件类型先过滤，条件再过滤
+    @Test
+    public void test_conditionWithDeclaredEventTypes() {
+        PaidOrCancelledService service = new PaidOrCancelledService();
+        processor.processBean("paidOrCancelledService", service, multicaster);
+        publish(500);
+        multicaster.multicastEvent(new OrderPaidEvent(500));
+        multicaster.multicastEvent(new OrderPaidEvent(5));
+        multicaster.multicastEvent(new OrderCancelledEvent(100));
+        Assert.assertEquals(Arrays.asList(OrderPaidEvent.class, OrderCancelledEvent.class), service.received);
+    }
+
+    //子类重写后使用子类方法上的注解，父类上的条件不再生效
+    @Test
+    public void test_overriddenMethodRegisteredOnce() {
+        OverridingService service = new OverridingService();
+        Assert.assertEquals(1, processor.processBean("overridingService", service, multicaster));
+        publish(1, 100);
+        Assert.assertEquals(Arrays.asList(-1, -100), service.received);
+    }
+
+    @Test
+    public void test_missingConditionMethod() {
+        try {
+            processor.processBean("missingConditionService", new MissingConditionService(), multicaster);
+            Assert.fail();
+        } catch (IllegalStateException expected) {
+        }
+        try {
+            processor.processBean("wrongConditionService", new WrongConditionService(), multicaster);
+            Assert.fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package springframework.beans.context.event;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import springframework.beans.context.ApplicationEvent;
+import springframework.beans.context.ApplicationListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 事件日志：重启后回放上次运行留下的事件，刷新之前发布的事件不会重复投递，提交失败时等待提交的线程收到异常
+ */
+public class JournalingApplicationEventMulticasterTest {
+
+    public static class CountEvent extends ApplicationEvent {
+        final int count;
+
+        public CountEvent(int count) {
+            super("test");
+            this.count = count;
+        }
+    }
+
+    public static class CountListener implements ApplicationListener<CountEvent> {
+        final List<Integer> received = new ArrayList<>();
+
+        @Override
+        public void onApplicationEvent(CountEvent event) {
+            received.add(event.count);
+        }
+    }
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("event-journal").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    private JournalingApplicationEventMulticaster newMulticaster(CountListener listener) {
+        JournalingApplicationEventMulticaster multicaster = new JournalingApplicationEventMulticaster();
+        multicaster.setJournalDirectory(directory.getPath());
+        multicaster.setSegmentSize(4096);
+        multicaster.addApplicationListener(listener);
+        return multicaster;
+    }
+
+    @Test
+    public void test_replayAfterRestart() throws Exception {
+        CountListener first = new CountListener();
+        JournalingApplicationEventMulticaster multicaster = newMulticaster(first);
+        multicaster.multicastEvent(new ContextRefreshedEvent(this));
+        //跨越多个段
+        for (int i = 0; i < 200; i++) {
+            multicaster.multicastEvent(new CountEvent(i));
+        }
+        multicaster.destroy();
+        Assert.assertEquals(200, first.received.size());
+
+        CountListener second = new CountListener();
+        multicaster = newMulticaster(second);
+        multicaster.multicastEvent(new ContextRefreshedEvent(this));
+        Assert.assertEquals(200, second.received.size());
+        for (int i = 0; i < 200; i++) {
+            Assert.assertEquals(i, (int) second.received.get(i));
+        }
+        multicaster.destroy();
+
+        //checkpoint已经推进，再次重启不再回放
+        CountListener third = new CountListener();
+        multicaster = newMulticaster(third);
+        multicaster.multicastEvent(new ContextRefreshedEvent(this));
+        Assert.assertTrue(third.received.isEmpty());
+        multicaster.destroy();
+        Assert.assertTrue(directory.listFiles().length > 2);
+    }
+
+    //刷新之前发布的事件已经实时投递，回放时只回放上次运行留下的事件
+    @Test
+    public void test_eventsBeforeRefreshNotReplayedTwice() throws Exception {
+        CountListener first = new CountListener();
+        JournalingApplicationEventMulticaster multicaster = newMulticaster(first);
+        multicaster.multicastEvent(new CountEvent(0));
+        multicaster.multicastEvent(new ContextRefreshedEvent(this));
+        multicaster.destroy();
+
+        CountListener second = new CountListener();
+        multicaster = newMulticaster(second);
+        multicaster.multicastEvent(new CountEvent(1));
+        multicaster.multicastEvent(new CountEvent(2));
+        multicaster.multicastEvent(new ContextRefreshedEvent(this));
+        multicaster.multicastEvent(new CountEvent(3));
+        Assert.assertEquals(Arrays.asList(1, 2, 0, 3), second.received);
+        multicaster.destroy();
+
+        //本次运行中发布的事件在下次启动时回放
+        CountListener third = new CountListener();
+        multicaster = newMulticaster(third);
+        multicaster.multicastEvent(new ContextRefreshedEvent(this));
+        Assert.assertEquals(Arrays.asList(1, 2, 3), third.received);
+        multicaster.destroy();
+    }
+
+    @Test
+    public void test_commitFailureReachesWaiters() throws Exception {
+        EventJournal journal = new EventJournal(directory, 4096, 1);
+        try {
+            journal.awaitCommitted(journal.append(new byte[]{1}), 5000);
+            //中断提交线程，让它以失败结束
+            for (Thread thread : Thread.getAllStackTraces().keySet()) {
+                if (thread.getName().equals("event-journal-committer")) {
+                    thread.interrupt();
+                    thread.join(5000);
+                }
+            }
+            try {
+                journal.awaitCommitted(journal.append(new byte[]{2}), 5000);
+                Assert.fail();
+            } catch (IOException expected) {
+                Assert.assertTrue(expected.getCause() instanceof InterruptedException);
+            }
+            try {
+                journal.append(new byte[]{3});
+                Assert.fail();
+            } catch (IOException expected) {
+            }
+        } finally {
+            journal.close();
+        }
+    }
+}
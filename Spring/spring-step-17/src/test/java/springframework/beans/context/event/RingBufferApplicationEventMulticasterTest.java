@@ -0,0 +1,222 @@
+package springframework.beans.context.event;
+
+import org.junit.Assert;
+import org.junit.Test;
+import springframework.beans.context.ApplicationEvent;
+import springframework.beans.context.ApplicationListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 环形缓冲区广播器：同一个监听器按发布顺序收到事件（包括监听多种事件的监听器），监听器的异常交给ErrorHandler，
+ * 关闭时正在发布的事件要么被处理、要么被拒绝
+ */
+public class RingBufferApplicationEventMulticasterTest {
+    private static final int EVENTS = 10000;
+    private static final int CONSUMERS = 4;
+
+    public static class OrderEvent extends ApplicationEvent {
+        final int sequence;
+
+        public OrderEvent(int sequence) {
+            super("order");
+            this.sequence = sequence;
+        }
+    }
+
+    public static class UserEvent extends ApplicationEvent {
+        final int sequence;
+
+        public UserEvent(int sequence) {
+            super("user");
+            this.sequence = sequence;
+        }
+    }
+
+    public static class OrderListener implements ApplicationListener<OrderEvent> {
+        final List<Integer> received = new ArrayList<>();
+
+        @Override
+        public void onApplicationEvent(OrderEvent event) {
+            received.add(event.sequence);
+        }
+    }
+
+    public static class UserListener implements ApplicationListener<UserEvent> {
+        final List<Integer> received = new ArrayList<>();
+
+        @Override
+        public void onApplicationEvent(UserEvent event) {
+            received.add(event.sequence);
+        }
+    }
+
+    //同时监听两种事件，在两种事件的监听器数组中下标不同
+    public static class AllEventsListener implements ApplicationListener<ApplicationEvent> {
+        final List<Integer> received = new ArrayList<>();
+        final List<Thread> threads = new ArrayList<>();
+
+        @Override
+        public void onApplicationEvent(ApplicationEvent event) {
+            received.add(event instanceof OrderEvent ? ((OrderEvent) event).sequence : ((UserEvent) event).sequence);
+            if (!threads.contains(Thread.currentThread())) {
+                threads.add(Thread.currentThread());
+            }
+        }
+    }
+
+    private static RingBufferApplicationEventMulticaster newMulticaster() {
+        RingBufferApplicationEventMulticaster multicaster = new RingBufferApplicationEventMulticaster();
+        multicaster.setBufferSize(256);
+        multicaster.setConsumerThreads(CONSUMERS);
+        return multicaster;
+    }
+
+    @Test
+    public void test_multiTypeListenerKeepsOrderAcrossConsumers() throws Exception {
+        RingBufferApplicationEventMulticaster multicaster = newMulticaster();
+        List<OrderListener> orderListeners = new ArrayList<>();
+        List<UserListener> userListeners = new ArrayList<>();
+        List<AllEventsListener> allEventsListeners = new ArrayList<>();
+        //交错注册，让同一个监听器在OrderEvent和UserEvent的监听器数组中处在不同的位置
+        for (int i = 0; i < 3; i++) {
+            OrderListener orderListener = new OrderListener();
+            orderListeners.add(orderListener);
+            multicaster.addApplicationListener(orderListener);
+            AllEventsListener allEventsListener = new AllEventsListener();
+            allEventsListeners.add(allEventsListener);
+            multicaster.addApplicationListener(allEventsListener);
+            for (int j = 0; j <= i; j++) {
+                UserListener userListener = new UserListener();
+                userListeners.add(userListener);
+                multicaster.addApplicationListener(userListener);
+            }
+        }
+        for (int i = 0; i < EVENTS; i++) {
+            multicaster.multicastEvent(i % 3 == 0 ? new UserEvent(i) : new OrderEvent(i));
+        }
+        //destroy等待已发布的事件全部处理完
+        multicaster.destroy();
+
+        for (AllEventsListener listener : allEventsListeners) {
+            Assert.assertEquals(EVENTS, listener.received.size());
+            for (int i = 0; i < EVENTS; i++) {
+                Assert.assertEquals(i, (int) listener.received.get(i));
+            }
+            Assert.assertEquals(1, listener.threads.size());
+        }
+        for (OrderListener listener : orderListeners) {
+            Assert.assertEquals(EVENTS - (EVENTS + 2) / 3, listener.received.size());
+            assertAscending(listener.received);
+        }
+        for (UserListener listener : userListeners) {
+            Assert.assertEquals((EVENTS + 2) / 3, listener.received.size());
+            assertAscending(listener.received);
+        }
+    }
+
+    private static void assertAscending(List<Integer> received) {
+        for (int i = 1; i < received.size(); i++) {
+            Assert.assertTrue(received.get(i - 1) < received.get(i));
+        }
+    }
+
+    @Test
+    public void test_consumerAssignmentIgnoresEventType() {
+        AllEventsListener listener = new AllEventsListener();
+        int consumer = RingBufferApplicationEventMulticaster.consumerIndex(listener, CONSUMERS);
+        Assert.assertTrue(consumer >= 0 && consumer < CONSUMERS);
+        Assert.assertEquals(consumer, RingBufferApplicationEventMulticaster.consumerIndex(listener, CONSUMERS));
+    }
+
+    @Test
+    public void test_errorHandlerReceivesListenerErrors() throws Exception {
+        RingBufferApplicationEventMulticaster multicaster = newMulticaster();
+        List<Throwable> errors = new CopyOnWriteArrayList<>();
+        multicaster.setErrorHandler(errors::add);
+        OrderListener survivor = new OrderListener();
+        multicaster.addApplicationListener(new ApplicationListener<OrderEvent>() {
+            @Override
+            public void onApplicationEvent(OrderEvent event) {
+                throw new IllegalStateException("failed " + event.sequence);
+            }
+        });
+        multicaster.addApplicationListener(survivor);
+        for (int i = 0; i < 100; i++) {
+            multicaster.multicastEvent(new OrderEvent(i));
+        }
+        multicaster.destroy();
+        Assert.assertEquals(100, errors.size());
+        Assert.assertEquals(100, survivor.received.size());
+    }
+
+    //默认交给线程的UncaughtExceptionHandler，消费者线程继续处理后面的事件
+    @Test
+    public void test_defaultErrorHandlerKeepsConsumerAlive() throws Exception {
+        Thread.UncaughtExceptionHandler previous = Thread.getDefaultUncaughtExceptionHandler();
+        List<Throwable> uncaught = new CopyOnWriteArrayList<>();
+        Thread.setDefaultUncaughtExceptionHandler((thread, t) -> uncaught.add(t));
+        try {
+            RingBufferApplicationEventMulticaster multicaster = new RingBufferApplicationEventMulticaster();
+            OrderListener survivor = new OrderListener();
+            multicaster.addApplicationListener(new ApplicationListener<OrderEvent>() {
+                @Override
+                public void onApplicationEvent(OrderEvent event) {
+                    if (event.sequence % 2 == 0) throw new IllegalStateException("failed " + event.sequence);
+                }
+            });
+            multicaster.addApplicationListener(survivor);
+            for (int i = 0; i < 10; i++) {
+                multicaster.multicastEvent(new OrderEvent(i));
+            }
+            multicaster.destroy();
+            Assert.assertEquals(5, uncaught.size());
+            Assert.assertEquals(10, survivor.received.size());
+        } finally {
+            Thread.setDefaultUncaughtExceptionHandler(previous);
+        }
+    }
+
+    //缓冲区满时多个发布者阻塞在等待容量上，这时关闭：每个成功发布的事件都被处理，发布者不会一直阻塞
+    @Test
+    public void test_shutdownWithProducersInFlight() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            RingBufferApplicationEventMulticaster multicaster = new RingBufferApplicationEventMulticaster();
+            multicaster.setBufferSize(16);
+            AtomicInteger received = new AtomicInteger();
+            multicaster.addApplicationListener(new ApplicationListener<OrderEvent>() {
+                @Override
+                public void onApplicationEvent(OrderEvent event) {
+                    LockSupport.parkNanos(20_000L);
+                    received.incrementAndGet();
+                }
+            });
+            AtomicInteger accepted = new AtomicInteger();
+            List<Thread> producers = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                Thread producer = new Thread(() -> {
+                    try {
+                        while (true) {
+                            multicaster.multicastEvent(new OrderEvent(0));
+                            accepted.incrementAndGet();
+                        }
+                    } catch (IllegalStateException expected) {
+                    }
+                });
+                producers.add(producer);
+                producer.start();
+            }
+            Thread.sleep(5);
+            multicaster.destroy();
+            for (Thread producer : producers) {
+                producer.join(5000);
+                Assert.assertFalse(producer.isAlive());
+            }
+            Assert.assertEquals(accepted.get(), received.get());
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package springframework.beans.context.event;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import springframework.beans.context.ApplicationEvent;
+import springframework.beans.context.ApplicationListener;
+import springframework.beans.context.annotation.Async;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步监听器按发布顺序处理事件，监听器的异常交给ErrorHandler，发布事件后不能再更换执行器
+ */
+public class SimpleApplicationEventMulticasterTest {
+    private static final int EVENTS = 200;
+
+    public static class CountEvent extends ApplicationEvent {
+        final int count;
+
+        public CountEvent(int count) {
+            super("test");
+            this.count = count;
+        }
+    }
+
+    @Async
+    public static class AsyncListener implements ApplicationListener<CountEvent> {
+        final List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+        final List<Thread> threads = new CopyOnWriteArrayList<>();
+        final CountDownLatch done = new CountDownLatch(EVENTS);
+
+        @Override
+        public void onApplicationEvent(CountEvent event) {
+            received.add(event.count);
+            threads.add(Thread.currentThread());
+            done.countDown();
+        }
+    }
+
+    public static class FailingListener implements ApplicationListener<CountEvent> {
+        @Override
+        public void onApplicationEvent(CountEvent event) {
+            throw new IllegalStateException("failed " + event.count);
+        }
+    }
+
+    private final ExecutorService pool = TaskExecutors.newBoundedThreadPool(4, 16);
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void test_asyncListenersKeepPublishOrder() throws Exception {
+        SimpleApplicationEventMulticaster multicaster = new SimpleApplicationEventMulticaster();
+        multicaster.setTaskExecutor(pool);
+        AsyncListener first = new AsyncListener();
+        AsyncListener second = new AsyncListener();
+        multicaster.addApplicationListener(first);
+        multicaster.addApplicationListener(second);
+        for (int i = 0; i < EVENTS; i++) {
+            multicaster.multicastEvent(new CountEvent(i));
+        }
+        Assert.assertTrue(first.done.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(second.done.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < EVENTS; i++) {
+            Assert.assertEquals(i, (int) first.received.get(i));
+            Assert.assertEquals(i, (int) second.received.get(i));
+        }
+    }
+
+    //没有配置执行器时，@Async监听器使用默认执行器，不在发布线程中执行
+    @Test
+    public void test_asyncWithoutTaskExecutor() throws Exception {
+        SimpleApplicationEventMulticaster multicaster = new SimpleApplicationEventMulticaster();
+        AsyncListener listener = new AsyncListener();
+        multicaster.addApplicationListener(listener);
+        for (int i = 0; i < EVENTS; i++) {
+            multicaster.multicastEvent(new CountEvent(i));
+        }
+        Assert.assertTrue(listener.done.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < EVENTS; i++) {
+            Assert.assertEquals(i, (int) listener.received.get(i));
+        }
+        Assert.assertFalse(listener.threads.contains(Thread.currentThread()));
+    }
+
+    @Test
+    public void test_syncErrorPropagatesWithoutHandler() {
+        SimpleApplicationEventMulticaster multicaster = new SimpleApplicationEventMulticaster();
+        multicaster.addApplicationListener(new FailingListener());
+        try {
+            multicaster.multicastEvent(new CountEvent(1));
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("failed 1", e.getMessage());
+        }
+    }
+
+    @Test
+    public void test_errorHandlerReceivesSyncAndAsyncErrors() throws Exception {
+        SimpleApplicationEventMulticaster multicaster = new SimpleApplicationEventMulticaster();
+        List<Throwable> errors = new CopyOnWriteArrayList<>();
+        CountDownLatch asyncErrors = new CountDownLatch(EVENTS);
+        multicaster.setErrorHandler(t -> {
+            errors.add(t);
+            if (t.getMessage().startsWith("async")) asyncErrors.countDown();
+        });
+        AsyncListener survivor = new AsyncListener();
+        multicaster.addApplicationListener(new FailingListener());
+        multicaster.addApplicationListener(new AsyncFailingListener());
+        multicaster.addApplicationListener(survivor);
+        for (int i = 0; i < EVENTS; i++) {
+            multicaster.multicastEvent(new CountEvent(i));
+        }
+        //一个监听器出错不影响其他监听器
+        Assert.assertTrue(survivor.done.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(asyncErrors.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(2 * EVENTS, errors.size());
+    }
+
+    @Async
+    public static class AsyncFailingListener implements ApplicationListener<CountEvent> {
+        @Override
+        public void onApplicationEvent(CountEvent event) {
+            throw new IllegalStateException("async " + event.count);
+        }
+    }
+
+    @Test
+    public void test_taskExecutorFixedAfterPublish() {
+        SimpleApplicationEventMulticaster multicaster = new SimpleApplicationEventMulticaster();
+        multicaster.setTaskExecutor(pool);
+        multicaster.setTaskExecutor(null);
+        multicaster.multicastEvent(new CountEvent(0));
+        try {
+            multicaster.setTaskExecutor(pool);
+            Assert.fail();
+        } catch (IllegalStateException expected) {
+        }
+        Assert.assertNull(multicaster.getTaskExecutor());
+    }
+}
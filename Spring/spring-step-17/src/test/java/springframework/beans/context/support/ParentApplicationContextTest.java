@@ -0,0 +1,184 @@
+package springframework.beans.context.support;
+
+import org.junit.Assert;
+import org.junit.Test;
+import springframework.BeansException;
+import springframework.beans.context.ApplicationContext;
+import springframework.beans.context.ApplicationEvent;
+import springframework.beans.context.ApplicationListener;
+import springframework.beans.context.event.ContextRefreshedEvent;
+import springframework.beans.factory.annotation.Autowired;
+import springframework.beans.factory.annotation.AutowiredAnnotationBeanPostProcessor;
+import springframework.beans.factory.annotation.Qualifier;
+import springframework.beans.factory.config.BeanDefinition;
+import springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 父子容器：子容器本地没有定义的Bean（包括@Autowired注入的）到父容器中查找，子容器发布的事件先在本地分发再交给父容器
+ */
+public class ParentApplicationContextTest {
+
+    public static class TenantEvent extends ApplicationEvent {
+        public TenantEvent(Object source) {
+            super(source);
+        }
+    }
+
+    public static class SharedService {
+    }
+
+    public static class TenantService {
+    }
+
+    public static class SharedListener implements ApplicationListener<TenantEvent> {
+        final List<Object> received = new ArrayList<>();
+
+        @Override
+        public void onApplicationEvent(TenantEvent event) {
+            received.add(event.getSource());
+        }
+    }
+
+    public static class RefreshListener implements ApplicationListener<ContextRefreshedEvent> {
+        final List<Object> refreshed = new ArrayList<>();
+
+        @Override
+        public void onApplicationEvent(ContextRefreshedEvent event) {
+            refreshed.add(event.getSource());
+        }
+    }
+
+    public static class LocalListener extends SharedListener {
+    }
+
+    public static class TenantConsumer {
+        @Autowired
+        private SharedService shared;
+        @Autowired
+        @Qualifier("sharedService")
+        private SharedService qualified;
+        @Autowired
+        private TenantService tenant;
+    }
+
+    static class TestApplicationContext extends AbstractRefreshableApplicationContext {
+        private final Map<String, Class<?>> beans;
+
+        TestApplicationContext(ApplicationContext parent, Map<String, Class<?>> beans) throws BeansException {
+            super(parent);
+            this.beans = beans;
+            refresh();
+        }
+
+        @Override
+        protected void loadBeanDefinitions(DefaultListableBeanFactory beanFactory) throws BeansException {
+            for (Map.Entry<String, Class<?>> entry : beans.entrySet()) {
+                beanFactory.registerBeanDefinition(entry.getKey(), new BeanDefinition(entry.getValue()));
+            }
+        }
+    }
+
+    private static Map<String, Class<?>> beans(Object... nameAndClass) {
+        Map<String, Class<?>> beans = new LinkedHashMap<>();
+        for (int i = 0; i < nameAndClass.length; i += 2) {
+            beans.put((String) nameAndClass[i], (Class<?>) nameAndClass[i + 1]);
+        }
+        return beans;
+    }
+
+    @Test
+    public void test_childGetBeanFallsBackToParent() throws BeansException {
+        TestApplicationContext parent = new TestApplicationContext(null, beans("sharedService", SharedService.class));
+        TestApplicationContext child = new TestApplicationContext(parent, beans("tenantService", TenantService.class));
+        SharedService shared = parent.getBean("sharedService", SharedService.class);
+
+        Assert.assertSame(parent, child.getParent());
+        Assert.assertSame(shared, child.getBean("sharedService"));
+        Assert.assertSame(shared, child.getBean("sharedService", SharedService.class));
+        Assert.assertSame(shared, child.getBean(SharedService.class));
+        Assert.assertNotNull(child.getBean(TenantService.class));
+        //父容器看不到子容器的Bean
+        try {
+            parent.getBean("tenantService");
+            Assert.fail();
+        } catch (BeansException expected) {
+        }
+        try {
+            child.getBean("missing");
+            Assert.fail();
+        } catch (BeansException expected) {
+        }
+    }
+
+    //子容器的@Autowired字段本地没有候选时注入父容器中的Bean
+    @Test
+    public void test_childAutowiresParentBean() throws BeansException {
+        TestApplicationContext parent = new TestApplicationContext(null, beans("sharedService", SharedService.class));
+        TestApplicationContext child = new TestApplicationContext(parent, beans("autowiredProcessor", AutowiredAnnotationBeanPostProcessor.class,
+                "tenantService", TenantService.class, "tenantConsumer", TenantConsumer.class));
+        TenantConsumer consumer = child.getBean("tenantConsumer", TenantConsumer.class);
+        Assert.assertSame(parent.getBean("sharedService"), consumer.shared);
+        Assert.assertSame(consumer.shared, consumer.qualified);
+        Assert.assertSame(child.getBean("tenantService"), consumer.tenant);
+    }
+
+    //父容器中解析出的名称被子容器中另一种类型的同名Bean覆盖时报错，不会注入错误的对象
+    @Test
+    public void test_autowiredParentBeanShadowedLocally() throws BeansException {
+        TestApplicationContext parent = new TestApplicationContext(null, beans("sharedService", SharedService.class));
+        TestApplicationContext child = new TestApplicationContext(parent, beans("sharedService", TenantService.class));
+        try {
+            child.getBeanFactory().resolveBeanName(SharedService.class, null);
+            Assert.fail();
+        } catch (BeansException expected) {
+        }
+        Assert.assertEquals("sharedService", parent.getBeanFactory().resolveBeanName(SharedService.class, null));
+    }
+
+    //子容器本地的定义覆盖父容器中的同名定义
+    @Test
+    public void test_localDefinitionShadowsParent() throws BeansException {
+        TestApplicationContext parent = new TestApplicationContext(null, beans("service", SharedService.class));
+        TestApplicationContext child = new TestApplicationContext(parent, beans("service", TenantService.class));
+        Assert.assertTrue(child.getBean("service") instanceof TenantService);
+        Assert.assertTrue(child.getBean("service", TenantService.class) instanceof TenantService);
+        Assert.assertTrue(parent.getBean("service") instanceof SharedService);
+    }
+
+    @Test
+    public void test_childEventsPropagateToParent() throws BeansException {
+        TestApplicationContext parent = new TestApplicationContext(null,
+                beans("sharedListener", SharedListener.class, "refreshListener", RefreshListener.class));
+        TestApplicationContext tenantA = new TestApplicationContext(parent, Collections.emptyMap());
+        TestApplicationContext tenantB = new TestApplicationContext(parent, beans("localListener", LocalListener.class));
+
+        tenantA.publishEvent(new TenantEvent("a"));
+        tenantB.publishEvent(new TenantEvent("b"));
+        parent.publishEvent(new TenantEvent("parent"));
+
+        SharedListener shared = parent.getBean("sharedListener", SharedListener.class);
+        Assert.assertEquals(Arrays.asList("a", "b", "parent"), shared.received);
+        //父容器的事件不会传给子容器
+        Assert.assertEquals(Arrays.asList("b"), tenantB.getBean("localListener", LocalListener.class).received);
+        //子容器的刷新完成事件也交给父容器的监听器
+        Assert.assertEquals(Arrays.asList(parent, tenantA, tenantB), parent.getBean("refreshListener", RefreshListener.class).refreshed);
+    }
+
+    //没有自己监听器的子容器不创建事件广播器
+    @Test
+    public void test_listenerlessChildHasNoMulticaster() throws BeansException {
+        TestApplicationContext parent = new TestApplicationContext(null, Collections.emptyMap());
+        TestApplicationContext tenantA = new TestApplicationContext(parent, Collections.emptyMap());
+        TestApplicationContext tenantB = new TestApplicationContext(parent, beans("localListener", LocalListener.class));
+        Assert.assertNotNull(parent.getBeanFactory().getSingleton(AbstractApplicationContext.APPLICATION_EVENT_MULTICASTER_BEAN_NAME));
+        Assert.assertNull(tenantA.getBeanFactory().getSingleton(AbstractApplicationContext.APPLICATION_EVENT_MULTICASTER_BEAN_NAME));
+        Assert.assertNotNull(tenantB.getBeanFactory().getSingleton(AbstractApplicationContext.APPLICATION_EVENT_MULTICASTER_BEAN_NAME));
+    }
+}
@@ -0,0 +1,96 @@
+package springframework.beans.factory.annotation;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import springframework.beans.factory.config.BeanDefinition;
+import springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 注解注入信息：先@Value后@Autowired，同一类注解中父类字段先于子类字段注入
+ */
+public class InjectionMetadataTest {
+    static final List<String> LOG = new ArrayList<>();
+
+    public static class BaseDependency {
+        public BaseDependency() {
+            LOG.add("create:base");
+        }
+    }
+
+    public static class ChildDependency {
+        public ChildDependency() {
+            LOG.add("create:child");
+        }
+    }
+
+    public static class Base {
+        @Value("${base}")
+        String baseValue;
+        @Autowired
+        BaseDependency dependency;
+    }
+
+    public static class Child extends Base {
+        @Value("v-${child}-${count}")
+        String childValue;
+        //与父类字段同名，两个字段都要注入
+        @Autowired
+        ChildDependency dependency;
+    }
+
+    public static class Plain {
+        String name;
+    }
+
+    private DefaultListableBeanFactory beanFactory;
+
+    @Before
+    public void setUp() throws Throwable {
+        LOG.clear();
+        beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("baseDependency", prototype(BaseDependency.class));
+        beanFactory.registerBeanDefinition("childDependency", prototype(ChildDependency.class));
+        beanFactory.registerBeanDefinition("child", prototype(Child.class));
+        beanFactory.addEmbeddedValueResolver(key -> {
+            LOG.add("resolve:" + key);
+            return "count".equals(key) ? "7" : key.toUpperCase();
+        });
+        AutowiredAnnotationBeanPostProcessor processor = new AutowiredAnnotationBeanPostProcessor();
+        processor.setBeanFactory(beanFactory);
+        beanFactory.addBeanPostProcessor(processor);
+    }
+
+    private static BeanDefinition prototype(Class<?> beanClass) {
+        BeanDefinition beanDefinition = new BeanDefinition(beanClass);
+        beanDefinition.setScope("prototype");
+        return beanDefinition;
+    }
+
+    @Test
+    public void test_superclassFieldsFirst() throws Throwable {
+        Child child = (Child) beanFactory.getBean("child");
+        Assert.assertEquals(Arrays.asList("resolve:base", "resolve:child", "resolve:count", "create:base", "create:child"), LOG);
+        Assert.assertEquals("BASE", child.baseValue);
+        Assert.assertEquals("v-CHILD-7", child.childValue);
+        Assert.assertNotNull(((Base) child).dependency);
+        Assert.assertNotNull(child.dependency);
+    }
+
+    @Test
+    public void test_metadataCachedPerClass() throws Throwable {
+        Assert.assertSame(InjectionMetadata.forClass(Child.class), InjectionMetadata.forClass(Child.class));
+        Assert.assertNotSame(InjectionMetadata.forClass(Base.class), InjectionMetadata.forClass(Child.class));
+        Assert.assertTrue(InjectionMetadata.forClass(Plain.class).isEmpty());
+        Assert.assertFalse(new AutowiredAnnotationBeanPostProcessor().supportsBeanType(Plain.class));
+        for (int i = 0; i < 3; i++) {
+            LOG.clear();
+            beanFactory.getBean("child");
+            Assert.assertEquals(5, LOG.size());
+        }
+    }
+}
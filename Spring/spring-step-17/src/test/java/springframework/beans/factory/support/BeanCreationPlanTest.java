@@ -0,0 +1,123 @@
+package springframework.beans.factory.support;
+
+import org.junit.Assert;
+import org.junit.Test;
+import springframework.BeansException;
+import springframework.PropertyValue;
+import springframework.PropertyValues;
+import springframework.beans.factory.config.BeanDefinition;
+
+/**
+ * 创建计划：同一个BeanDefinition只解析一次，初始化和销毁方法通过缓存的句柄调用
+ */
+public class BeanCreationPlanTest {
+
+    public static class Base {
+        private int id;
+
+        public int getId() {
+            return id;
+        }
+    }
+
+    public static class Account extends Base {
+        private String name;
+        private int initCount;
+        private int destroyCount;
+
+        public Account() {
+        }
+
+        public Account(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void init() {
+            initCount++;
+        }
+
+        public void close() {
+            destroyCount++;
+        }
+    }
+
+    private static BeanDefinition accountDefinition(String scope) {
+        PropertyValues propertyValues = new PropertyValues();
+        propertyValues.addPropertyValue(new PropertyValue("id", "10001"));
+        propertyValues.addPropertyValue(new PropertyValue("name", "account"));
+        BeanDefinition beanDefinition = new BeanDefinition(Account.class, propertyValues);
+        beanDefinition.setInitMethodName("init");
+        beanDefinition.setDestroyMethodName("close");
+        beanDefinition.setScope(scope);
+        return beanDefinition;
+    }
+
+    @Test
+    public void test_planReusedForPrototypes() throws Throwable {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        BeanDefinition beanDefinition = accountDefinition("prototype");
+        beanFactory.registerBeanDefinition("account", beanDefinition);
+        Account first = (Account) beanFactory.getBean("account");
+        BeanCreationPlan plan = beanFactory.getCreationPlan("account", beanDefinition);
+        for (int i = 0; i < 10; i++) {
+            Account account = (Account) beanFactory.getBean("account");
+            Assert.assertNotSame(first, account);
+            //父类字段的setter同样走缓存
+            Assert.assertEquals(10001, account.getId());
+            Assert.assertEquals("account", account.getName());
+            Assert.assertEquals(1, account.initCount);
+        }
+        Assert.assertSame(plan, beanFactory.getCreationPlan("account", beanDefinition));
+        Assert.assertSame(plan.getPropertyInjector("name"), plan.getPropertyInjector("name"));
+    }
+
+    @Test
+    public void test_planReplacedWithDefinition() throws Throwable {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        BeanDefinition beanDefinition = accountDefinition("prototype");
+        beanFactory.registerBeanDefinition("account", beanDefinition);
+        beanFactory.getBean("account");
+        BeanCreationPlan plan = beanFactory.getCreationPlan("account", beanDefinition);
+
+        BeanDefinition replacement = accountDefinition("prototype");
+        replacement.setInitMethodName(null);
+        beanFactory.registerBeanDefinition("account", replacement);
+        Account account = (Account) beanFactory.getBean("account");
+        Assert.assertEquals(0, account.initCount);
+        Assert.assertNotSame(plan, beanFactory.getCreationPlan("account", replacement));
+    }
+
+    @Test
+    public void test_constructorArgs() throws Throwable {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        BeanDefinition beanDefinition = new BeanDefinition(Account.class);
+        beanDefinition.setScope("prototype");
+        beanFactory.registerBeanDefinition("account", beanDefinition);
+        Assert.assertEquals("first", ((Account) beanFactory.getBean("account", "first")).getName());
+        Assert.assertEquals("second", ((Account) beanFactory.getBean("account", "second")).getName());
+        Assert.assertNull(((Account) beanFactory.getBean("account")).getName());
+    }
+
+    @Test
+    public void test_initAndDestroyThroughCachedHandles() throws Throwable {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        BeanDefinition beanDefinition = accountDefinition("singleton");
+        beanFactory.registerBeanDefinition("account", beanDefinition);
+        Account account = (Account) beanFactory.getBean("account");
+        Assert.assertEquals(1, account.initCount);
+        Assert.assertNotNull(beanFactory.getCreationPlan("account", beanDefinition).getDestroyMethod());
+        beanFactory.destroySingletons();
+        Assert.assertEquals(1, account.destroyCount);
+    }
+
+    @Test(expected = BeansException.class)
+    public void test_missingInitMethod() throws Throwable {
+        BeanDefinition beanDefinition = new BeanDefinition(Account.class);
+        beanDefinition.setInitMethodName("start");
+        new BeanCreationPlan("account", beanDefinition);
+    }
+}
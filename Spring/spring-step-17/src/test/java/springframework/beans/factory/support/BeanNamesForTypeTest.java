@@ -0,0 +1,87 @@
+package springframework.beans.factory.support;
+
+import org.junit.Assert;
+import org.junit.Test;
+import springframework.beans.factory.config.BeanDefinition;
+
+/**
+ * 类型索引：按父类、接口查找Bean名称，覆盖和移除BeanDefinition后索引同步更新
+ */
+public class BeanNamesForTypeTest {
+
+    public interface Animal {
+    }
+
+    public static class Dog implements Animal {
+    }
+
+    public static class Puppy extends Dog {
+    }
+
+    public static class Cat implements Animal {
+    }
+
+    @Test
+    public void test_lookupBySuperclassAndInterface() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("dog", new BeanDefinition(Dog.class));
+        beanFactory.registerBeanDefinition("puppy", new BeanDefinition(Puppy.class));
+        beanFactory.registerBeanDefinition("cat", new BeanDefinition(Cat.class));
+        Assert.assertArrayEquals(new String[]{"dog", "puppy", "cat"}, beanFactory.getBeanNamesForType(Animal.class));
+        Assert.assertArrayEquals(new String[]{"dog", "puppy"}, beanFactory.getBeanNamesForType(Dog.class));
+        Assert.assertArrayEquals(new String[]{"puppy"}, beanFactory.getBeanNamesForType(Puppy.class));
+        Assert.assertArrayEquals(new String[]{"dog", "puppy", "cat"}, beanFactory.getBeanNamesForType(Object.class));
+        Assert.assertArrayEquals(new String[0], beanFactory.getBeanNamesForType(String.class));
+    }
+
+    @Test
+    public void test_replacedDefinitionLeavesOldTypes() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("pet", new BeanDefinition(Puppy.class));
+        beanFactory.registerBeanDefinition("pet", new BeanDefinition(Cat.class));
+        Assert.assertArrayEquals(new String[0], beanFactory.getBeanNamesForType(Dog.class));
+        Assert.assertArrayEquals(new String[0], beanFactory.getBeanNamesForType(Puppy.class));
+        Assert.assertArrayEquals(new String[]{"pet"}, beanFactory.getBeanNamesForType(Cat.class));
+        Assert.assertArrayEquals(new String[]{"pet"}, beanFactory.getBeanNamesForType(Animal.class));
+    }
+
+    @Test
+    public void test_removedDefinitionLeavesIndex() throws Throwable {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("dog", new BeanDefinition(Dog.class));
+        beanFactory.registerBeanDefinition("cat", new BeanDefinition(Cat.class));
+        Assert.assertTrue(beanFactory.getBean(Dog.class) instanceof Dog);
+        beanFactory.removeBeanDefinition("dog");
+        Assert.assertFalse(beanFactory.containsBeanDefinition("dog"));
+        Assert.assertArrayEquals(new String[0], beanFactory.getBeanNamesForType(Dog.class));
+        Assert.assertArrayEquals(new String[]{"cat"}, beanFactory.getBeanNamesForType(Animal.class));
+        //按类型解析的缓存也要失效，只剩一个候选
+        Assert.assertTrue(beanFactory.getBean(Animal.class) instanceof Cat);
+    }
+
+    @Test
+    public void test_indexAfterFreeze() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("dog", new BeanDefinition(Dog.class));
+        beanFactory.freezeConfiguration();
+        beanFactory.registerBeanDefinition("cat", new BeanDefinition(Cat.class));
+        Assert.assertArrayEquals(new String[]{"dog", "cat"}, beanFactory.getBeanNamesForType(Animal.class));
+        beanFactory.registerBeanDefinition("dog", new BeanDefinition(Puppy.class));
+        Assert.assertArrayEquals(new String[]{"dog"}, beanFactory.getBeanNamesForType(Puppy.class));
+    }
+
+    //冻结后返回的是快照数组的副本，调用方修改不影响容器
+    @Test
+    public void test_frozenNamesAreCopies() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("dog", new BeanDefinition(Dog.class));
+        beanFactory.registerBeanDefinition("cat", new BeanDefinition(Cat.class));
+        beanFactory.freezeConfiguration();
+        String[] beanNames = beanFactory.getBeanNamesForType(Animal.class);
+        beanNames[0] = "changed";
+        String[] beanDefinitionNames = beanFactory.getBeanDefinitionNames();
+        beanDefinitionNames[1] = "changed";
+        Assert.assertArrayEquals(new String[]{"dog", "cat"}, beanFactory.getBeanNamesForType(Animal.class));
+        Assert.assertArrayEquals(new String[]{"dog", "cat"}, beanFactory.getBeanDefinitionNames());
+    }
+}
@@ -0,0 +1,131 @@
+package springframework.beans.factory.support;
+
+import org.junit.Assert;
+import org.junit.Test;
+import springframework.beans.factory.InitializingBean;
+import springframework.beans.factory.config.BeanDefinition;
+import springframework.beans.factory.config.BeanPostProcessor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * BeanPostProcessor的调用顺序：按注册顺序先执行所有前置处理，再执行初始化方法，最后执行所有后置处理
+ */
+public class BeanPostProcessorOrderTest {
+
+    static final List<String> LOG = new ArrayList<>();
+
+    public static class Service implements InitializingBean {
+        @Override
+        public void afterPropertiesSet() {
+            LOG.add("init");
+        }
+    }
+
+    public static class Other {
+    }
+
+    //包装对象，用来检查后置处理拿到的是前置处理返回的对象
+    public static class Wrapper {
+        final Object target;
+
+        Wrapper(Object target) {
+            this.target = target;
+        }
+    }
+
+    private static class RecordingProcessor implements BeanPostProcessor {
+        private final String name;
+        private final List<String> log;
+
+        RecordingProcessor(String name, List<String> log) {
+            this.name = name;
+            this.log = log;
+        }
+
+        @Override
+        public Object postProcessBeforeInitialization(Object bean, String beanName) {
+            log.add(name + ".before:" + beanName);
+            return bean;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            log.add(name + ".after:" + beanName);
+            return bean;
+        }
+    }
+
+    @Test
+    public void test_beforeInitThenAfter() throws Throwable {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("service", new BeanDefinition(Service.class));
+        LOG.clear();
+        beanFactory.addBeanPostProcessor(new RecordingProcessor("first", LOG));
+        beanFactory.addBeanPostProcessor(new RecordingProcessor("second", LOG));
+        beanFactory.getBean("service");
+        Assert.assertEquals(Arrays.asList("first.before:service", "second.before:service", "init",
+                "first.after:service", "second.after:service"), LOG);
+    }
+
+    @Test
+    public void test_afterReceivesWrappedBean() throws Throwable {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("service", new BeanDefinition(Service.class));
+        List<Object> received = new ArrayList<>();
+        beanFactory.addBeanPostProcessor(new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                return new Wrapper(bean);
+            }
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                received.add(bean);
+                return bean;
+            }
+        });
+        Object bean = beanFactory.getBean("service");
+        Assert.assertTrue(bean instanceof Wrapper);
+        Assert.assertSame(bean, received.get(0));
+        Assert.assertTrue(((Wrapper) bean).target instanceof Service);
+    }
+
+    @Test
+    public void test_unsupportedBeanTypeSkipped() throws Throwable {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("service", new BeanDefinition(Service.class));
+        beanFactory.registerBeanDefinition("other", new BeanDefinition(Other.class));
+        List<String> log = new ArrayList<>();
+        beanFactory.addBeanPostProcessor(new RecordingProcessor("service", log) {
+            @Override
+            public boolean supportsBeanType(Class<?> beanType) {
+                return beanType == Service.class;
+            }
+        });
+        beanFactory.getBean("service");
+        beanFactory.getBean("other");
+        Assert.assertEquals(Arrays.asList("service.before:service", "service.after:service"), log);
+    }
+
+    @Test
+    public void test_cacheRebuiltWhenProcessorAdded() throws Throwable {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        BeanDefinition beanDefinition = new BeanDefinition(Other.class);
+        beanDefinition.setScope("prototype");
+        beanFactory.registerBeanDefinition("other", beanDefinition);
+        List<String> log = new ArrayList<>();
+        RecordingProcessor first = new RecordingProcessor("first", log);
+        beanFactory.addBeanPostProcessor(first);
+        beanFactory.getBean("other");
+        beanFactory.addBeanPostProcessor(new RecordingProcessor("second", log));
+        //重复注册的处理器移到末尾，不会执行两次
+        beanFactory.addBeanPostProcessor(first);
+        log.clear();
+        beanFactory.getBean("other");
+        Assert.assertEquals(Arrays.asList("second.before:other", "first.before:other", "second.after:other", "first.after:other"), log);
+        Assert.assertEquals(2, beanFactory.getBeanPostProcessors().size());
+    }
+}
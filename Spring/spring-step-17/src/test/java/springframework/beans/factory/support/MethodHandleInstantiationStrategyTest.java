@@ -0,0 +1,55 @@
+package springframework.beans.factory.support;
+
+import org.junit.Assert;
+import org.junit.Test;
+import springframework.BeansException;
+import springframework.beans.factory.config.BeanDefinition;
+
+public class MethodHandleInstantiationStrategyTest {
+
+    public static class Point {
+        private final int x;
+        private final int y;
+
+        public Point() {
+            this(0, 0);
+        }
+
+        public Point(Integer x, Integer y) {
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    private final MethodHandleInstantiationStrategy strategy = new MethodHandleInstantiationStrategy();
+    private final BeanDefinition beanDefinition = new BeanDefinition(Point.class);
+
+    @Test
+    public void test_defaultAndArgConstructor() throws Throwable {
+        Point origin = (Point) strategy.instatiate(beanDefinition, "point", null, null);
+        Assert.assertEquals(0, origin.x);
+        Point point = (Point) strategy.instatiate(beanDefinition, "point", Point.class.getConstructor(Integer.class, Integer.class), new Object[]{1, 2});
+        Assert.assertEquals(1, point.x);
+        Assert.assertEquals(2, point.y);
+    }
+
+    //有参数但没有匹配的构造函数时报错，而不是用无参构造创建一个没有参数的对象
+    @Test(expected = BeansException.class)
+    public void test_argsWithoutConstructor() throws Throwable {
+        strategy.instatiate(beanDefinition, "point", null, new Object[]{1});
+    }
+
+    @Test
+    public void test_argsWithoutConstructorThroughBeanFactory() throws Throwable {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanDefinition.setScope("prototype");
+        beanFactory.registerBeanDefinition("point", beanDefinition);
+        Assert.assertEquals(3, ((Point) beanFactory.getBean("point", 3, 4)).x);
+        try {
+            beanFactory.getBean("point", 3);
+            Assert.fail();
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getCause() instanceof BeansException);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package springframework.beans.factory.support;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import springframework.PropertyValue;
+import springframework.PropertyValues;
+import springframework.beans.factory.config.BeanDefinition;
+import springframework.beans.factory.config.BeanReference;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 提前实例化单例：按依赖拓扑顺序创建，循环依赖最后串行创建，并行模式下互不依赖的Bean同时创建
+ */
+public class PreInstantiateSingletonsTest {
+    //记录构造顺序和构造线程
+    static final List<String> CREATED = Collections.synchronizedList(new ArrayList<>());
+    static final List<Thread> THREADS = Collections.synchronizedList(new ArrayList<>());
+    //并行模式下两个互不依赖的Bean在构造器里互相等待，串行创建会超时
+    static volatile CountDownLatch siblings = new CountDownLatch(0);
+
+    public static class Node {
+        private Object next;
+        private Object other;
+
+        public Node() {
+            CREATED.add(getClass().getSimpleName());
+            THREADS.add(Thread.currentThread());
+        }
+
+        public Object getNext() {
+            return next;
+        }
+    }
+
+    public static class A extends Node {
+    }
+
+    public static class B extends Node {
+    }
+
+    public static class C extends Node {
+    }
+
+    public static class D extends Node {
+    }
+
+    public static class X extends Node {
+    }
+
+    public static class Y extends Node {
+    }
+
+    public static class Left extends Node {
+        public Left() throws InterruptedException {
+            siblings.countDown();
+            Assert.assertTrue(siblings.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    public static class Right extends Node {
+        public Right() throws InterruptedException {
+            siblings.countDown();
+            Assert.assertTrue(siblings.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Before
+    public void reset() {
+        CREATED.clear();
+        THREADS.clear();
+    }
+
+    private static BeanDefinition node(Class<?> beanClass, String next, String other) {
+        PropertyValues propertyValues = new PropertyValues();
+        if (next != null) propertyValues.addPropertyValue(new PropertyValue("next", new BeanReference(next)));
+        if (other != null) propertyValues.addPropertyValue(new PropertyValue("other", new BeanReference(other)));
+        return new BeanDefinition(beanClass, propertyValues);
+    }
+
+    //a依赖b，b依赖c，d没有依赖；注册顺序与依赖顺序相反
+    private DefaultListableBeanFactory createChain() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("a", node(A.class, "b", null));
+        beanFactory.registerBeanDefinition("b", node(B.class, "c", null));
+        beanFactory.registerBeanDefinition("c", node(C.class, null, null));
+        beanFactory.registerBeanDefinition("d", node(D.class, null, null));
+        return beanFactory;
+    }
+
+    @Test
+    public void test_topologicalOrder() throws Throwable {
+        DefaultListableBeanFactory beanFactory = createChain();
+        beanFactory.preInstantiateSingletons();
+        Assert.assertEquals(4, CREATED.size());
+        Assert.assertTrue(CREATED.indexOf("C") < CREATED.indexOf("B"));
+        Assert.assertTrue(CREATED.indexOf("B") < CREATED.indexOf("A"));
+        Assert.assertSame(beanFactory.getBean("b"), ((Node) beanFactory.getBean("a")).getNext());
+        Assert.assertEquals(4, beanFactory.getSingletonCreationNanos().size());
+    }
+
+    @Test
+    public void test_cycleFallsBackToSerialCreation() throws Throwable {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        //x和y互相依赖，a依赖环中的x，也无法排序；c不在环上
+        beanFactory.registerBeanDefinition("a", node(A.class, "x", null));
+        beanFactory.registerBeanDefinition("x", node(X.class, "y", null));
+        beanFactory.registerBeanDefinition("y", node(Y.class, "x", null));
+        beanFactory.registerBeanDefinition("c", node(C.class, null, null));
+        beanFactory.preInstantiateSingletons();
+        Assert.assertEquals(4, CREATED.size());
+        Assert.assertEquals("C", CREATED.get(0));
+        Node x = (Node) beanFactory.getBean("x");
+        Node y = (Node) beanFactory.getBean("y");
+        Assert.assertSame(y, x.getNext());
+        Assert.assertSame(x, y.getNext());
+        Assert.assertSame(x, ((Node) beanFactory.getBean("a")).getNext());
+    }
+
+    @Test
+    public void test_parallelMode() throws Throwable {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            siblings = new CountDownLatch(2);
+            DefaultListableBeanFactory beanFactory = createChain();
+            beanFactory.registerBeanDefinition("left", node(Left.class, null, null));
+            beanFactory.registerBeanDefinition("right", node(Right.class, null, null));
+            beanFactory.setParallelPreInstantiation(true);
+            beanFactory.setPreInstantiationPool(pool);
+            beanFactory.preInstantiateSingletons();
+
+            Assert.assertEquals(6, CREATED.size());
+            Assert.assertTrue(CREATED.indexOf("C") < CREATED.indexOf("B"));
+            Assert.assertTrue(CREATED.indexOf("B") < CREATED.indexOf("A"));
+            for (Thread thread : THREADS) {
+                Assert.assertTrue(thread instanceof ForkJoinWorkerThread);
+                Assert.assertSame(pool, ((ForkJoinWorkerThread) thread).getPool());
+            }
+            Assert.assertSame(beanFactory.getBean("c"), ((Node) beanFactory.getBean("b")).getNext());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_parallelModeWithCycle() throws Throwable {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("x", node(X.class, "y", "d"));
+        beanFactory.registerBeanDefinition("y", node(Y.class, "x", null));
+        beanFactory.registerBeanDefinition("d", node(D.class, null, null));
+        beanFactory.setParallelPreInstantiation(true);
+        beanFactory.preInstantiateSingletons();
+        Assert.assertEquals(3, CREATED.size());
+        Assert.assertEquals("D", CREATED.get(0));
+        Assert.assertSame(beanFactory.getBean("y"), ((Node) beanFactory.getBean("x")).getNext());
+    }
+}
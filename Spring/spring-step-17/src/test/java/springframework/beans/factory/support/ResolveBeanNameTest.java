@@ -0,0 +1,96 @@
+package springframework.beans.factory.support;
+
+import org.junit.Assert;
+import org.junit.Test;
+import springframework.BeansException;
+import springframework.beans.factory.annotation.Qualifier;
+import springframework.beans.factory.config.BeanDefinition;
+
+/**
+ * 按类型解析唯一的Bean名称：@Qualifier匹配Bean名称或类上的@Qualifier，多个候选时取唯一的@Primary
+ */
+public class ResolveBeanNameTest {
+
+    public interface Store {
+    }
+
+    public static class MemoryStore implements Store {
+    }
+
+    @Qualifier("disk")
+    public static class FileStore implements Store {
+    }
+
+    public static class CacheStore implements Store {
+    }
+
+    private static BeanDefinition primary(Class<?> beanClass) {
+        BeanDefinition beanDefinition = new BeanDefinition(beanClass);
+        beanDefinition.setPrimary(true);
+        return beanDefinition;
+    }
+
+    @Test
+    public void test_qualifierMatchesBeanName() throws Throwable {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("memory", new BeanDefinition(MemoryStore.class));
+        beanFactory.registerBeanDefinition("file", new BeanDefinition(FileStore.class));
+        Assert.assertEquals("memory", beanFactory.resolveBeanName(Store.class, "memory"));
+        Assert.assertEquals("file", beanFactory.resolveBeanName(Store.class, "file"));
+    }
+
+    @Test
+    public void test_qualifierMatchesClassLevelQualifier() throws Throwable {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("memory", new BeanDefinition(MemoryStore.class));
+        beanFactory.registerBeanDefinition("file", new BeanDefinition(FileStore.class));
+        Assert.assertEquals("file", beanFactory.resolveBeanName(Store.class, "disk"));
+        try {
+            beanFactory.resolveBeanName(Store.class, "tape");
+            Assert.fail();
+        } catch (BeansException expected) {
+        }
+    }
+
+    @Test
+    public void test_singlePrimaryWins() throws Throwable {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("memory", new BeanDefinition(MemoryStore.class));
+        beanFactory.registerBeanDefinition("cache", primary(CacheStore.class));
+        Assert.assertTrue(beanFactory.getBean(Store.class) instanceof CacheStore);
+    }
+
+    @Test
+    public void test_multiplePrimaryCandidatesFail() throws Throwable {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("memory", primary(MemoryStore.class));
+        beanFactory.registerBeanDefinition("cache", primary(CacheStore.class));
+        try {
+            beanFactory.resolveBeanName(Store.class, null);
+            Assert.fail();
+        } catch (BeansException expected) {
+        }
+        //只剩一个@Primary时可以解析
+        beanFactory.registerBeanDefinition("memory", new BeanDefinition(MemoryStore.class));
+        Assert.assertEquals("cache", beanFactory.resolveBeanName(Store.class, null));
+    }
+
+    @Test
+    public void test_cacheInvalidatedOnRegistration() throws Throwable {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("memory", new BeanDefinition(MemoryStore.class));
+        Assert.assertEquals("memory", beanFactory.resolveBeanName(Store.class, null));
+        //新注册的候选使原来唯一的结果失效
+        beanFactory.registerBeanDefinition("cache", new BeanDefinition(CacheStore.class));
+        try {
+            beanFactory.resolveBeanName(Store.class, null);
+            Assert.fail();
+        } catch (BeansException expected) {
+        }
+        beanFactory.registerBeanDefinition("cache", primary(CacheStore.class));
+        Assert.assertEquals("cache", beanFactory.resolveBeanName(Store.class, null));
+        //同名覆盖成其他类型后，按原来类型解析的结果也要失效
+        beanFactory.registerBeanDefinition("cache", new BeanDefinition(String.class));
+        Assert.assertEquals("memory", beanFactory.resolveBeanName(Store.class, null));
+    }
+}
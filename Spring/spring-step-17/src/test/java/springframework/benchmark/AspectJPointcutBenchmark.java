@@ -0,0 +1,98 @@
+package springframework.benchmark;
+
+import org.aspectj.weaver.tools.PointcutExpression;
+import org.aspectj.weaver.tools.PointcutParser;
+import org.aspectj.weaver.tools.PointcutPrimitive;
+import springframework.aop.aspectj.AspectJExpressionPointcut;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+
+/**
+ * 比较切点匹配的开销：每次都交给AspectJ匹配（原来的做法）和使用ShadowMatch缓存；
+ * 以及每个切点新建解析器和共享解析器/表达式缓存时创建切点的开销
+ * 运行方式：直接执行main方法（不会作为单元测试运行）
+ */
+public class AspectJPointcutBenchmark {
+    private static final String EXPRESSION = "execution(* springframework.benchmark.AspectJPointcutBenchmark.OrderService.*(..))";
+    private static final int ITERATIONS = 2_000_000;
+    private static final int PARSES = 2_000;
+
+    public static class OrderService {
+        public String find(String id) {
+            return id;
+        }
+
+        public void save(String id, int quantity) {
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Method[] methods = {
+                OrderService.class.getMethod("find", String.class),
+                OrderService.class.getMethod("save", String.class, int.class),
+                Object.class.getMethod("toString")
+        };
+        PointcutExpression raw = newParser().parsePointcutExpression(EXPRESSION);
+        AspectJExpressionPointcut cached = new AspectJExpressionPointcut(EXPRESSION);
+
+        System.out.printf("%-40s %15s%n", "case", "ops/s");
+        report("matches, no cache", measure(() -> {
+            int hits = 0;
+            for (int i = 0; i < ITERATIONS; i++) {
+                if (raw.matchesMethodExecution(methods[i % methods.length]).alwaysMatches()) {
+                    hits++;
+                }
+            }
+            return hits;
+        }, true), ITERATIONS);
+        report("matches, shadow-match cache", measure(() -> {
+            int hits = 0;
+            for (int i = 0; i < ITERATIONS; i++) {
+                if (cached.matches(methods[i % methods.length], OrderService.class)) {
+                    hits++;
+                }
+            }
+            return hits;
+        }, true), ITERATIONS);
+        report("parse, new parser per pointcut", measure(() -> {
+            int count = 0;
+            for (int i = 0; i < PARSES; i++) {
+                count += newParser().parsePointcutExpression(EXPRESSION) != null ? 1 : 0;
+            }
+            return count;
+        }, false), PARSES);
+        report("parse, shared parser + expression cache", measure(() -> {
+            int count = 0;
+            for (int i = 0; i < PARSES; i++) {
+                count += new AspectJExpressionPointcut(EXPRESSION) != null ? 1 : 0;
+            }
+            return count;
+        }, false), PARSES);
+    }
+
+    private static PointcutParser newParser() {
+        return PointcutParser.getPointcutParserSupportingSpecifiedPrimitivesAndUsingSpecifiedClassLoaderForResolution(
+                Collections.singleton(PointcutPrimitive.EXECUTION), AspectJPointcutBenchmark.class.getClassLoader());
+    }
+
+    private interface Task {
+        int run();
+    }
+
+    //需要预热时先运行一次，返回最后一次运行的耗时
+    private static long measure(Task task, boolean warmup) {
+        if (warmup) {
+            task.run();
+        }
+        long start = System.nanoTime();
+        if (task.run() < 0) {
+            throw new IllegalStateException();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void report(String name, long nanos, int operations) {
+        System.out.printf("%-40s %15.0f%n", name, operations * 1e9 / nanos);
+    }
+}
@@ -0,0 +1,77 @@
+package springframework.benchmark;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import springframework.aop.AdvisedSupport;
+import springframework.aop.TargetSource;
+import springframework.aop.framework.ProxyFactory;
+
+/**
+ * 比较CGLIB代理上被增强方法、未增强方法和直接调用目标对象每秒的调用次数
+ * 运行方式：直接执行main方法（不会作为单元测试运行）
+ */
+public class CglibAopProxyBenchmark {
+    private static final int WARMUP = 500_000;
+    private static final int ITERATIONS = 10_000_000;
+
+    public static class Counter {
+        private long value;
+
+        public long advised(long delta) {
+            return value += delta;
+        }
+
+        public long plain(long delta) {
+            return value += delta;
+        }
+    }
+
+    public static void main(String[] args) {
+        Counter target = new Counter();
+        AdvisedSupport advisedSupport = new AdvisedSupport();
+        advisedSupport.setTargetSource(new TargetSource(target));
+        advisedSupport.setMethodMatcher((method, targetClass) -> method.getName().equals("advised"));
+        advisedSupport.setMethodInterceptor((MethodInterceptor) invocation -> invocation.proceed());
+        advisedSupport.setProxyTargetClass(true);
+        Counter proxy = (Counter) new ProxyFactory(advisedSupport).getProxy();
+
+        System.out.printf("%-30s %15s%n", "case", "calls/s");
+        report("direct call", () -> {
+            long sum = 0;
+            for (int i = 0; i < ITERATIONS; i++) {
+                sum += target.plain(1);
+            }
+            return sum;
+        });
+        report("proxy, advised method", () -> {
+            long sum = 0;
+            for (int i = 0; i < ITERATIONS; i++) {
+                sum += proxy.advised(1);
+            }
+            return sum;
+        });
+        report("proxy, unadvised method", () -> {
+            long sum = 0;
+            for (int i = 0; i < ITERATIONS; i++) {
+                sum += proxy.plain(1);
+            }
+            return sum;
+        });
+    }
+
+    private interface Task {
+        long run();
+    }
+
+    private static void report(String name, Task task) {
+        for (int i = 0; i < WARMUP / ITERATIONS + 1; i++) {
+            task.run();
+        }
+        long start = System.nanoTime();
+        long sink = task.run();
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%-30s %15.0f%n", name, ITERATIONS * 1e9 / elapsed);
+        if (sink == 0) {
+            throw new IllegalStateException();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package springframework.benchmark;
+
+import springframework.beans.context.ApplicationEvent;
+import springframework.beans.context.event.EventJournal;
+import springframework.beans.context.event.EventSerializer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 测试事件日志的追加（等待/不等待组提交）和回放的吞吐量
+ * 运行方式：直接执行main方法（不会作为单元测试运行）
+ */
+public class EventJournalBenchmark {
+    private static final int EVENTS = 200_000;
+
+    public static class CacheInvalidatedEvent extends ApplicationEvent {
+        private final String cacheName;
+        private final long key;
+
+        public CacheInvalidatedEvent(String cacheName, long key) {
+            super(cacheName);
+            this.cacheName = cacheName;
+            this.key = key;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.out.printf("%-36s %15s %12s%n", "case", "events/s", "MB/s");
+        runAppend("append, no wait, 1 thread", 1, false);
+        runAppend("append, group commit, 1 thread", 1, true);
+        runAppend("append, group commit, 8 threads", 8, true);
+    }
+
+    private static void runAppend(String name, int threads, boolean awaitCommit) throws Exception {
+        File directory = Files.createTempDirectory("event-journal").toFile();
+        byte[] record = EventSerializer.JAVA.serialize(new CacheInvalidatedEvent("users", 42L));
+        //等待落盘时每个事件都要等一次force，减少事件数
+        int events = awaitCommit ? EVENTS / 10 : EVENTS;
+        EventJournal journal = new EventJournal(directory, 16 * 1024 * 1024, 1);
+        try {
+            Thread[] workers = new Thread[threads];
+            long start = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                workers[t] = new Thread(() -> {
+                    try {
+                        for (int i = 0; i < events / threads; i++) {
+                            long position = journal.append(record);
+                            if (awaitCommit) {
+                                journal.awaitCommitted(position, 10_000);
+                            }
+                        }
+                    } catch (IOException | InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+                workers[t].start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            report(name, events, (long) events * record.length, System.nanoTime() - start);
+
+            AtomicLong bytes = new AtomicLong();
+            long replayStart = System.nanoTime();
+            journal.replay(0, data -> bytes.addAndGet(data.length));
+            report("replay (" + name + ")", events, bytes.get(), System.nanoTime() - replayStart);
+        } finally {
+            journal.close();
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+
+    private static void report(String name, int events, long bytes, long nanos) {
+        System.out.printf("%-36s %15.0f %12.1f%n", name, events * 1e9 / nanos, bytes * 1e9 / nanos / (1024 * 1024));
+    }
+}
@@ -0,0 +1,78 @@
+package springframework.benchmark;
+
+import springframework.BeansException;
+import springframework.beans.factory.config.BeanDefinition;
+import springframework.beans.factory.support.CglibSubclassingInstantiationStrategy;
+import springframework.beans.factory.support.InstantiationStrategy;
+import springframework.beans.factory.support.MethodHandleInstantiationStrategy;
+import springframework.beans.factory.support.SimpleInstantiatioinStrategy;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.reflect.Constructor;
+
+/**
+ * 比较三种实例化策略每秒创建的实例数以及Metaspace的增长
+ * 运行方式：直接执行main方法（不会作为单元测试运行）
+ */
+public class InstantiationStrategyBenchmark {
+    private static final int WARMUP = 200_000;
+    private static final int ITERATIONS = 2_000_000;
+
+    public static class UserService {
+        private String uId;
+        public UserService() {
+        }
+        public UserService(String uId) {
+            this.uId = uId;
+        }
+    }
+
+    public static void main(String[] args) throws Throwable {
+        BeanDefinition beanDefinition = new BeanDefinition(UserService.class);
+        Constructor<?> ctor = UserService.class.getDeclaredConstructor(String.class);
+        Object[] ctorArgs = {"10001"};
+        System.out.printf("%-40s %15s %15s %15s%n", "strategy", "instances/s", "metaspace(KB)", "classes loaded");
+        run("SimpleInstantiatioinStrategy", new SimpleInstantiatioinStrategy(), beanDefinition, ctor, ctorArgs);
+        run("CglibSubclassingInstantiationStrategy", new CglibSubclassingInstantiationStrategy(), beanDefinition, ctor, ctorArgs);
+        run("MethodHandleInstantiationStrategy", new MethodHandleInstantiationStrategy(), beanDefinition, ctor, ctorArgs);
+    }
+
+    private static void run(String name, InstantiationStrategy strategy, BeanDefinition beanDefinition,
+                            Constructor<?> ctor, Object[] ctorArgs) throws BeansException {
+        long metaspaceBefore = metaspaceUsed();
+        long classesBefore = ManagementFactory.getClassLoadingMXBean().getTotalLoadedClassCount();
+        for (int i = 0; i < WARMUP; i++) {
+            instantiate(strategy, beanDefinition, ctor, ctorArgs, i);
+        }
+        long start = System.nanoTime();
+        Object sink = null;
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink = instantiate(strategy, beanDefinition, ctor, ctorArgs, i);
+        }
+        long elapsed = System.nanoTime() - start;
+        long metaspaceGrowth = (metaspaceUsed() - metaspaceBefore) / 1024;
+        long classesLoaded = ManagementFactory.getClassLoadingMXBean().getTotalLoadedClassCount() - classesBefore;
+        System.out.printf("%-40s %15.0f %15d %15d%n", name, ITERATIONS * 1e9 / elapsed, metaspaceGrowth, classesLoaded);
+        if (sink == null) {
+            throw new IllegalStateException();
+        }
+    }
+
+    //交替使用无参构造和有参构造
+    private static Object instantiate(InstantiationStrategy strategy, BeanDefinition beanDefinition,
+                                      Constructor<?> ctor, Object[] ctorArgs, int i) throws BeansException {
+        return (i & 1) == 0
+                ? strategy.instatiate(beanDefinition, "userService", null, null)
+                : strategy.instatiate(beanDefinition, "userService", ctor, ctorArgs);
+    }
+
+    private static long metaspaceUsed() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if ("Metaspace".equals(pool.getName())) {
+                return pool.getUsage().getUsed();
+            }
+        }
+        return 0;
+    }
+}